@@ -1,16 +1,33 @@
 package application;
 
+import database.CatalogReloader;
+import database.DataParser;
+import database.Database;
+import jakarta.annotation.PreDestroy;
 import service.Baloot;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 @SpringBootApplication
 @ComponentScan(basePackages = "controllers")
 public class BalootApplication {
-    public static void main(String[] args) {
-        Baloot.getInstance().fetchAndStoreData();
+    public static void main(String[] args) throws IOException {
+        Baloot.getInstance();
+        new CatalogReloader(Database.getInstance(), DataParser.DATA_PATH).start();
         SpringApplication.run(BalootApplication.class, args);
+    }
 
+    // Beans are destroyed after the web server has stopped, so no request changes the data
+    // while its snapshot is taken.
+    @PreDestroy
+    public void saveSnapshot() throws IOException {
+        Baloot baloot = Baloot.getInstance();
+        Path snapshot = baloot.getSnapshotPath();
+        if (snapshot != null)
+            baloot.saveSnapshot(snapshot);
     }
 }
@@ -7,15 +7,20 @@ import model.Commodity;
 import model.User;
 import exceptions.NotExistentCommodity;
 import exceptions.NotExistentUser;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 public class CommoditiesController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_COMMENT_PAGE_SIZE = 20;
+    private static final int MAX_COMMENT_PAGE_SIZE = 100;
 
     private Baloot baloot = Baloot.getInstance();
 
@@ -80,17 +85,33 @@ public class CommoditiesController {
     }
 
     @GetMapping(value = "/commodities/{id}/comment")
-    public ResponseEntity<ArrayList<Comment>> getCommodityComment(@PathVariable String id) {
+    public ResponseEntity<ArrayList<Comment>> getCommodityComment(@PathVariable String id,
+                                                                  @RequestParam(required = false) Integer cursor,
+                                                                  @RequestParam(required = false) Integer limit) {
+        int commodityId;
         try {
-            System.out.println("FOKE " + id);
-            ArrayList<Comment> comments = baloot.getCommentsForCommodity(
-                    Integer.parseInt(baloot.getCommodityById(id).getId())
-            );
-            return new ResponseEntity<>(comments, HttpStatus.OK);
+            commodityId = Integer.parseInt(baloot.getCommodityById(id).getId());
         } catch (NotExistentCommodity e) {
             // We should check for commodity existent
             return new ResponseEntity<>(new ArrayList<>(), HttpStatus.NOT_FOUND);
         }
+
+        if (cursor == null && limit == null)
+            return new ResponseEntity<>(baloot.getCommentsForCommodity(commodityId), HttpStatus.OK);
+
+        int from = cursor == null ? 0 : cursor;
+        int pageSize = limit == null ? DEFAULT_COMMENT_PAGE_SIZE : Math.min(limit, MAX_COMMENT_PAGE_SIZE);
+        if (from < 0 || pageSize <= 0)
+            return new ResponseEntity<>(new ArrayList<>(), HttpStatus.BAD_REQUEST);
+
+        // One extra comment tells whether another page follows.
+        ArrayList<Comment> comments = baloot.getCommentsForCommodity(commodityId, from, pageSize + 1);
+        HttpHeaders headers = new HttpHeaders();
+        if (comments.size() > pageSize) {
+            comments.remove(pageSize);
+            headers.add(NEXT_CURSOR_HEADER, String.valueOf(from + pageSize));
+        }
+        return new ResponseEntity<>(comments, headers, HttpStatus.OK);
     }
 
     @PostMapping(value = "/commodities/search")
@@ -103,6 +124,8 @@ public class CommoditiesController {
                 case "name" -> baloot.filterCommoditiesByName(searchValue);
                 case "category" -> baloot.filterCommoditiesByCategory(searchValue);
                 case "provider" -> baloot.filterCommoditiesByProviderName(searchValue);
+                case "categories" -> baloot.filterCommoditiesByCategories(
+                        parseCategories(searchValue), isMatchAll(input.get("match")));
                 default -> throw new InvalidSearchOption();
             };
             System.out.println("HELL NA");
@@ -114,6 +137,27 @@ public class CommoditiesController {
         }
     }
 
+    private List<String> parseCategories(String searchValue) throws InvalidSearchOption {
+        if (searchValue == null)
+            throw new InvalidSearchOption();
+
+        List<String> categories = new ArrayList<>();
+        for (String category : searchValue.split(","))
+            if (!category.isBlank())
+                categories.add(category.trim());
+
+        return categories;
+    }
+
+    private boolean isMatchAll(String match) throws InvalidSearchOption {
+        if (match == null || match.equals("all"))
+            return true;
+        if (match.equals("any"))
+            return false;
+
+        throw new InvalidSearchOption();
+    }
+
     @GetMapping(value = "/commodities/{id}/suggested")
     public ResponseEntity<ArrayList<Commodity>> getSuggestedCommodities(@PathVariable String id) {
         try {
@@ -0,0 +1,23 @@
+package controllers;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import service.Baloot;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "dataload")
+public class DataLoadEndpoint {
+    private Baloot baloot = Baloot.getInstance();
+
+    public void setBaloot(Baloot baloot) {
+        this.baloot = baloot;
+    }
+
+    @ReadOperation
+    public Map<String, Long> timings() {
+        return baloot.getLoadTimings();
+    }
+}
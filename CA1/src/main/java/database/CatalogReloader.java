@@ -0,0 +1,174 @@
+package database;
+
+import model.Commodity;
+import model.Provider;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks up edits to the provider and commodity files while the application runs. A changed
+ * file is parsed on the watcher thread and diffed against the version loaded before it; the
+ * replacement table and its indexes are built off to the side and published with a single
+ * volatile write, so requests keep reading the old catalog until the new one is complete.
+ * Commodities whose listing did not change stay the same live objects and keep their stock.
+ * A changed one is replaced by its freshly parsed listing, which takes over the raters and
+ * recomputes the rating from them; rates are held off while the table is built, and those
+ * posted later on the old object are forwarded to its replacement.
+ */
+public class CatalogReloader implements AutoCloseable {
+    // editors often save in several writes, so events are collected until the file settles
+    private static final long SETTLE_MILLIS = 200;
+
+    public record Diff(int added, int changed, int removed) {
+    }
+
+    // What the file said about a commodity, kept apart from the live object runtime changes mutate.
+    private record Listing(String name, String providerId, int price, List<String> categories,
+                           float rating, int inStock, String image, float initRate) {
+        static Listing of(Commodity commodity) {
+            List<String> categories = commodity.getCategories() == null ? null : new ArrayList<>(commodity.getCategories());
+            return new Listing(commodity.getName(), commodity.getProviderId(), commodity.getPrice(), categories,
+                    commodity.getRating(), commodity.getInStock(), commodity.getImage(), commodity.getInitRate());
+        }
+    }
+
+    private final Database database;
+    private final DataParser dataParser;
+    private final Path directory;
+    private Map<String, Listing> listings;
+    private WatchService watchService;
+
+    public CatalogReloader(Database database, String dataPath) throws IOException {
+        this.database = database;
+        this.dataParser = new DataParser(database, dataPath);
+        this.directory = Paths.get(dataPath);
+        this.listings = listingsOf(dataParser.parseCommodities());
+    }
+
+    private static Map<String, Listing> listingsOf(List<Commodity> commodities) {
+        Map<String, Listing> listings = new HashMap<>();
+        for (Commodity commodity : commodities)
+            if (commodity.getId() != null)
+                listings.putIfAbsent(commodity.getId(), Listing.of(commodity));
+        return listings;
+    }
+
+    public synchronized Diff reloadCommodities() throws IOException {
+        List<Commodity> parsed = dataParser.parseCommodities();
+        Map<String, Listing> next = listingsOf(parsed);
+
+        int[] added = new int[1];
+        int[] changed = new int[1];
+        database.replaceCommodities(() -> {
+            List<Commodity> merged = new ArrayList<>(parsed.size());
+            for (Commodity commodity : parsed) {
+                Listing before = listings.get(commodity.getId());
+                Commodity live = database.findCommodityById(commodity.getId());
+                if (before == null || live == null) {
+                    added[0]++;
+                    merged.add(commodity);
+                } else if (!before.equals(Listing.of(commodity))) {
+                    changed[0]++;
+                    commodity.replace(live);
+                    merged.add(commodity);
+                } else {
+                    merged.add(live);
+                }
+            }
+            return merged;
+        });
+
+        int removed = 0;
+        for (String id : listings.keySet())
+            if (!next.containsKey(id))
+                removed++;
+
+        listings = next;
+        return new Diff(added[0], changed[0], removed);
+    }
+
+    public synchronized Diff reloadProviders() throws IOException {
+        List<Provider> parsed = dataParser.parseProviders();
+
+        int added = 0;
+        int changed = 0;
+        Set<String> ids = new HashSet<>();
+        for (Provider provider : parsed) {
+            ids.add(provider.getId());
+            Provider live = database.findProviderById(provider.getId());
+            if (live == null)
+                added++;
+            else if (!Objects.equals(live.getName(), provider.getName())
+                    || !Objects.equals(live.getRegistryDate(), provider.getRegistryDate())
+                    || !Objects.equals(live.getImage(), provider.getImage()))
+                changed++;
+        }
+
+        int removed = 0;
+        for (Provider provider : database.getProviders())
+            if (!ids.contains(provider.getId()))
+                removed++;
+
+        database.setProviders(parsed);
+        return new Diff(added, changed, removed);
+    }
+
+    public synchronized void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcher = new Thread(() -> watch(watchService), "catalog-reloader");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(WatchService watchService) {
+        try {
+            while (true) {
+                Set<String> changed = new HashSet<>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents())
+                        if (event.context() instanceof Path file)
+                            changed.add(file.toString());
+                    key.reset();
+                    key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                // a file caught halfway through a save fails to parse; the live catalog stays and
+                // the write that completes it triggers another reload
+                try {
+                    if (changed.contains(DataParser.PROVIDERS_FILE))
+                        reloadProviders();
+                    if (changed.contains(DataParser.COMMODITIES_FILE))
+                        reloadCommodities();
+                } catch (IOException e) {
+                    System.err.println("Catalog reload failed: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null)
+            watchService.close();
+    }
+}
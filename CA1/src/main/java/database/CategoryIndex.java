@@ -0,0 +1,77 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Dictionary-encodes category names to dense ids and keeps one position bitmap per id.
+ */
+public class CategoryIndex {
+    private final Map<String, Integer> dictionary = new ConcurrentHashMap<>();
+    private volatile PositionBitmap[] bitmaps = new PositionBitmap[0];
+    private int[][] indexedCategories = new int[16][];
+
+    public synchronized void put(int position, List<String> categories) {
+        if (position >= indexedCategories.length)
+            indexedCategories = Arrays.copyOf(indexedCategories, Math.max(position + 1, indexedCategories.length * 2));
+
+        int[] ids = categories == null ? new int[0] : categories.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::idOf)
+                .distinct()
+                .toArray();
+
+        PositionBitmap[] current = bitmaps;
+        for (int id : ids)
+            current[id].set(position);
+
+        int[] previous = indexedCategories[position];
+        if (previous != null)
+            for (int id : previous)
+                if (Arrays.stream(ids).noneMatch(kept -> kept == id))
+                    current[id].clear(position);
+
+        indexedCategories[position] = ids;
+    }
+
+    public void forEach(String category, IntConsumer action) {
+        PositionBitmap bitmap = bitmapOf(category);
+        if (bitmap != null)
+            bitmap.forEach(action);
+    }
+
+    public void forEach(List<String> categories, boolean matchAll, IntConsumer action) {
+        List<PositionBitmap> selected = new ArrayList<>();
+        for (String category : categories) {
+            PositionBitmap bitmap = bitmapOf(category);
+            if (bitmap != null)
+                selected.add(bitmap);
+            else if (matchAll)
+                return;
+        }
+
+        PositionBitmap.forEach(selected, matchAll, action);
+    }
+
+    private PositionBitmap bitmapOf(String category) {
+        Integer id = category == null ? null : dictionary.get(category);
+        return id == null ? null : bitmaps[id];
+    }
+
+    private int idOf(String category) {
+        Integer id = dictionary.get(category);
+        if (id != null)
+            return id;
+
+        PositionBitmap[] current = Arrays.copyOf(bitmaps, bitmaps.length + 1);
+        current[current.length - 1] = new PositionBitmap();
+        bitmaps = current;
+        dictionary.put(category, current.length - 1);
+        return current.length - 1;
+    }
+}
@@ -0,0 +1,291 @@
+package database;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import model.Comment;
+import model.CommentStore;
+import model.Vote;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Comments left in the data file until someone asks for them. Only where each comment lies in
+ * the file and which commodity it belongs to is kept in memory; a commodity's comments are
+ * bound in segments of {@link #SEGMENT_SIZE} the first time a page touches them, and the most
+ * recently used segments stay cached. Votes go through the file: a voted comment is written to
+ * an overflow file and read from there from then on, so an evicted segment never takes votes
+ * with it and memory does not grow with the number of voted comments. The data file is kept
+ * open and must not change while the comments are in use.
+ */
+public class CommentFile implements CommentStore, AutoCloseable {
+    static final int SEGMENT_SIZE = 64;
+    private static final int CACHED_SEGMENTS = 1024;
+    private static final int VOTE_LOCKS = 64;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Path overflowPath;
+    private final FileChannel overflow;
+    private final ObjectReader reader;
+    private final ObjectReader overflowReader;
+    private final ObjectWriter writer;
+    private final int[] commodityOf;
+    private final Map<Integer, int[]> idsByCommodity = new HashMap<>();
+    // votes on one comment are applied and written out one at a time
+    private final Object[] voteLocks = new Object[VOTE_LOCKS];
+
+    // guarded by this; a negative offset -(n + 1) points at byte n of the overflow file
+    private final long[] offsets;
+    private final int[] lengths;
+    private final LinkedHashMap<Long, Comment[]> cached;
+    // comments voted on and not yet written out, which a reader must not bind a stale copy of
+    private final Map<Integer, Comment> voting = new HashMap<>();
+    private long overflowSize;
+
+    // Comment ids are positions in the file, so the arrays are indexed by id.
+    CommentFile(Path path, ObjectMapper mapper, long[] offsets, int[] lengths, int[] commodityOf,
+                int cachedSegments) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.overflowPath = Files.createTempFile("comment-votes", ".json");
+        this.overflow = FileChannel.open(overflowPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        this.reader = mapper.readerFor(Comment.class);
+        // a written comment also carries the properties only its getters have
+        this.overflowReader = reader.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.writer = mapper.writerFor(Comment.class);
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.commodityOf = commodityOf;
+        this.cached = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Comment[]> eldest) {
+                return size() > cachedSegments;
+            }
+        };
+        for (int i = 0; i < VOTE_LOCKS; i++)
+            voteLocks[i] = new Object();
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int commodityId : commodityOf)
+            counts.merge(commodityId, 1, Integer::sum);
+        for (int id = commodityOf.length - 1; id >= 0; id--) {
+            int remaining = counts.merge(commodityOf[id], -1, Integer::sum);
+            idsByCommodity.computeIfAbsent(commodityOf[id], key -> new int[remaining + 1])[remaining] = id;
+        }
+    }
+
+    CommentFile(Path path, ObjectMapper mapper, long[] offsets, int[] lengths, int[] commodityOf) throws IOException {
+        this(path, mapper, offsets, lengths, commodityOf, CACHED_SEGMENTS);
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    private static long keyOf(int commodityId, int segment) {
+        return ((long) commodityId << 32) | segment;
+    }
+
+    // Binds outside the lock so one slow read does not hold up every other page; when two
+    // threads load the same segment, the first to publish it wins. A vote written out meanwhile
+    // moves its comment, and the segment is read again rather than cached without the vote.
+    private Comment[] segment(int commodityId, int segment) {
+        long key = keyOf(commodityId, segment);
+        int[] ids = idsByCommodity.get(commodityId);
+        int from = segment * SEGMENT_SIZE;
+        int count = Math.min(SEGMENT_SIZE, ids.length - from);
+        long[] at = new long[count];
+        int[] length = new int[count];
+        while (true) {
+            synchronized (this) {
+                Comment[] comments = cached.get(key);
+                if (comments != null)
+                    return comments;
+
+                for (int i = 0; i < count; i++) {
+                    at[i] = offsets[ids[from + i]];
+                    length[i] = lengths[ids[from + i]];
+                }
+            }
+
+            Comment[] loaded = new Comment[count];
+            for (int i = 0; i < count; i++)
+                loaded[i] = bind(ids[from + i], at[i], length[i]);
+
+            synchronized (this) {
+                Comment[] comments = cached.get(key);
+                if (comments != null)
+                    return comments;
+
+                if (unmoved(ids, from, at)) {
+                    for (int i = 0; i < count; i++) {
+                        Comment comment = voting.get(ids[from + i]);
+                        if (comment != null)
+                            loaded[i] = comment;
+                    }
+                    cached.put(key, loaded);
+                    return loaded;
+                }
+            }
+        }
+    }
+
+    // guarded by this
+    private boolean unmoved(int[] ids, int from, long[] at) {
+        for (int i = 0; i < at.length; i++)
+            if (offsets[ids[from + i]] != at[i])
+                return false;
+        return true;
+    }
+
+    // Positional reads leave the shared channels' positions alone, so they need no locking.
+    private Comment bind(int id, long offset, int length) {
+        boolean overflowed = offset < 0;
+        FileChannel source = overflowed ? overflow : channel;
+        long position = overflowed ? -offset - 1 : offset;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining())
+                if (source.read(buffer, position + buffer.position()) < 0)
+                    throw new IOException("Comment " + id + " runs past the end of " + (overflowed ? overflowPath : path));
+
+            Comment comment = (overflowed ? overflowReader : reader).readValue(buffer.array());
+            comment.setId(id);
+            comment.keepIn(this);
+            return comment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int positionOf(int id) {
+        return Arrays.binarySearch(idsByCommodity.get(commodityOf[id]), id);
+    }
+
+    // Reads a comment without caching it, for callers that only look, such as a snapshot
+    // walking every comment in id order, which would otherwise churn the whole cache.
+    public Comment read(int id) {
+        int position = positionOf(id);
+        long offset;
+        int length;
+        synchronized (this) {
+            Comment comment = voting.get(id);
+            if (comment != null)
+                return comment;
+
+            Comment[] comments = cached.get(keyOf(commodityOf[id], position / SEGMENT_SIZE));
+            if (comments != null)
+                return comments[position % SEGMENT_SIZE];
+
+            offset = offsets[id];
+            length = lengths[id];
+        }
+        return bind(id, offset, length);
+    }
+
+    public Comment get(int id) {
+        int position = positionOf(id);
+        return segment(commodityOf[id], position / SEGMENT_SIZE)[position % SEGMENT_SIZE];
+    }
+
+    // The copy voted on may have been evicted, and another bound, since it was handed out; the
+    // vote is applied to the copy kept now and written out before the next vote on the comment.
+    @Override
+    public void vote(Comment comment, String userName, Vote vote) {
+        int id = comment.getId();
+        long key = keyOf(commodityOf[id], positionOf(id) / SEGMENT_SIZE);
+        synchronized (voteLocks[id % VOTE_LOCKS]) {
+            Comment kept = read(id);
+            synchronized (this) {
+                voting.put(id, kept);
+            }
+            try {
+                kept.voteInPlace(userName, vote);
+                write(id, kept);
+            } finally {
+                synchronized (this) {
+                    voting.remove(id);
+                    Comment[] comments = cached.get(key);
+                    if (comments != null)
+                        comments[positionOf(id) % SEGMENT_SIZE] = kept;
+                }
+            }
+        }
+    }
+
+    private void write(int id, Comment comment) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(writer.writeValueAsBytes(comment));
+            long at;
+            synchronized (this) {
+                at = overflowSize;
+                overflowSize += buffer.remaining();
+            }
+            while (buffer.hasRemaining())
+                overflow.write(buffer, at + buffer.position());
+
+            synchronized (this) {
+                offsets[id] = -at - 1;
+                lengths[id] = buffer.capacity();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<Comment> getByCommodity(int commodityId) {
+        int[] ids = idsByCommodity.get(commodityId);
+        if (ids == null)
+            return List.of();
+
+        return new CommodityComments(commodityId, ids.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            overflow.close();
+        }
+    }
+
+    private class CommodityComments extends AbstractList<Comment> implements RandomAccess {
+        private final int commodityId;
+        private final int size;
+
+        CommodityComments(int commodityId, int size) {
+            this.commodityId = commodityId;
+            this.size = size;
+        }
+
+        @Override
+        public Comment get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+            return segment(commodityId, index / SEGMENT_SIZE)[index % SEGMENT_SIZE];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package database;
+
+import model.Comment;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Comment rows plus, per commodity id, an append-only list of that commodity's comments in
+ * insertion order, so a product page never has to scan the global comment list. Comments
+ * loaded from the data file can stay in a {@link CommentFile}; they come first, with ids below
+ * its size, and comments added later are kept in memory after them.
+ */
+public class CommentTable extends Table<Integer, Comment> implements AutoCloseable {
+    private final Map<Integer, SegmentedList<Comment>> byCommodity = new ConcurrentHashMap<>();
+    private final CommentFile file;
+
+    public CommentTable() {
+        super(Comment::getId);
+        this.file = null;
+    }
+
+    public CommentTable(Collection<? extends Comment> comments) {
+        this();
+        for (Comment comment : comments)
+            add(comment);
+    }
+
+    public CommentTable(CommentFile file) {
+        super(Comment::getId);
+        this.file = file;
+    }
+
+    private boolean inFile(Integer commentId) {
+        return file != null && commentId != null && commentId >= 0 && commentId < file.size();
+    }
+
+    @Override
+    public synchronized int add(Comment comment) {
+        int position = super.add(comment);
+        byCommodity.computeIfAbsent(comment.getCommodityId(), key -> new SegmentedList<>()).append(comment);
+        return position;
+    }
+
+    @Override
+    public Comment get(Integer commentId) {
+        return inFile(commentId) ? file.get(commentId) : super.get(commentId);
+    }
+
+    @Override
+    public List<Comment> rows() {
+        if (file == null)
+            return super.rows();
+
+        return new Concatenation(new AbstractList<>() {
+            @Override
+            public Comment get(int index) {
+                return file.read(index);
+            }
+
+            @Override
+            public int size() {
+                return file.size();
+            }
+        }, super.rows());
+    }
+
+    @Override
+    public int size() {
+        return file == null ? super.size() : file.size() + super.size();
+    }
+
+    public List<Comment> getByCommodity(int commodityId) {
+        List<Comment> comments = byCommodity.get(commodityId);
+        if (comments == null)
+            comments = List.of();
+        if (file == null)
+            return comments;
+
+        return new Concatenation(file.getByCommodity(commodityId), comments);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null)
+            file.close();
+    }
+
+    private static class Concatenation extends AbstractList<Comment> implements RandomAccess {
+        private final List<Comment> first;
+        private final List<Comment> second;
+
+        Concatenation(List<Comment> first, List<Comment> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public Comment get(int index) {
+            int split = first.size();
+            return index < split ? first.get(index) : second.get(index - split);
+        }
+
+        @Override
+        public int size() {
+            return first.size() + second.size();
+        }
+    }
+}
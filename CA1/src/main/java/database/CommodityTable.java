@@ -0,0 +1,109 @@
+package database;
+
+import model.Commodity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Commodity rows with their secondary search indexes. Bulk replacing the catalog swaps a
+ * whole CommodityTable, so readers never see rows from one catalog with indexes of another.
+ */
+public class CommodityTable extends Table<String, Commodity> {
+    private final TrigramIndex names = new TrigramIndex();
+    private final CategoryIndex categories = new CategoryIndex();
+    private final SuggestionIndex suggestions = new SuggestionIndex();
+
+    public CommodityTable() {
+        super(Commodity::getId);
+    }
+
+    public CommodityTable(Collection<? extends Commodity> commodities) {
+        this();
+        for (Commodity commodity : commodities)
+            add(commodity);
+    }
+
+    @Override
+    public synchronized int add(Commodity commodity) {
+        int position = super.add(commodity);
+        names.put(position, commodity.getName());
+        categories.put(position, commodity.getCategories());
+        suggestions.put(position, commodity.getRating(), commodity.getCategories());
+        return position;
+    }
+
+    public synchronized void nameChanged(Commodity commodity) {
+        int position = rowOf(commodity);
+        if (position >= 0)
+            names.put(position, commodity.getName());
+    }
+
+    public synchronized void categoriesChanged(Commodity commodity) {
+        int position = rowOf(commodity);
+        if (position >= 0) {
+            categories.put(position, commodity.getCategories());
+            suggestions.put(position, commodity.getRating(), commodity.getCategories());
+        }
+    }
+
+    public synchronized void ratingChanged(Commodity commodity) {
+        int position = rowOf(commodity);
+        if (position >= 0)
+            suggestions.put(position, commodity.getRating(), commodity.getCategories());
+    }
+
+    public ArrayList<Commodity> filterByName(String name) {
+        List<Commodity> rows = rows();
+        ArrayList<Commodity> result = new ArrayList<>();
+
+        List<Integer> candidates = names.candidates(name);
+        if (candidates == null) {
+            for (Commodity commodity : rows)
+                if (commodity.getName().contains(name))
+                    result.add(commodity);
+            return result;
+        }
+
+        for (int position : candidates) {
+            Commodity commodity = rows.get(position);
+            if (commodity.getName() != null && commodity.getName().contains(name))
+                result.add(commodity);
+        }
+        return result;
+    }
+
+    public ArrayList<Commodity> filterByCategory(String category) {
+        List<Commodity> rows = rows();
+        ArrayList<Commodity> result = new ArrayList<>();
+        categories.forEach(category, position -> result.add(rows.get(position)));
+        return result;
+    }
+
+    public ArrayList<Commodity> filterByCategories(List<String> categoryNames, boolean matchAll) {
+        List<Commodity> rows = rows();
+        ArrayList<Commodity> result = new ArrayList<>();
+        categories.forEach(categoryNames, matchAll, position -> result.add(rows.get(position)));
+        return result;
+    }
+
+    public ArrayList<Commodity> suggestionCandidates(Commodity commodity, int limit) {
+        List<Commodity> rows = rows();
+        Set<Commodity> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        suggestions.candidates(commodity.getCategories(), limit, position -> {
+            Commodity candidate = rows.get(position);
+            if (candidate != commodity)
+                candidates.add(candidate);
+        });
+        return new ArrayList<>(candidates);
+    }
+
+    private int rowOf(Commodity commodity) {
+        int position = positionOf(commodity.getId());
+        return position >= 0 && rows().get(position) == commodity ? position : -1;
+    }
+}
@@ -1,64 +1,364 @@
 package database;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import model.Comment;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.io.ByteStreams;
 import model.Commodity;
 import model.Provider;
 import model.User;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 
 public class DataParser {
+    public static final String DATA_PATH = "src/main/java/database/data/";
+    public static final String PROVIDERS_FILE = "providers.json";
+    public static final String COMMODITIES_FILE = "commodities.json";
+    public static final String COMMENTS_FILE = "comments.json";
+
+    private static final long CHUNK_SIZE = 64L << 20;
+    private static final byte[] NONE = {};
+    private static final byte[] OPEN = {'['};
+    private static final byte[] CLOSE = {']'};
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final String dataPath = "src/main/java/database/data/";
+    private final String dataPath;
+    private final long chunkSize;
     Database database;
 
     public DataParser(Database database) {
+        this(database, DATA_PATH);
+    }
+
+    public DataParser(Database database, String dataPath) {
+        this(database, dataPath, CHUNK_SIZE);
+    }
+
+    DataParser(Database database, String dataPath, long chunkSize) {
         this.database = database;
+        this.dataPath = dataPath;
+        this.chunkSize = chunkSize;
     }
 
-    public void getUsersList() throws IOException {
-        String filePath = dataPath + "users.json";
-        String usersString = new String(Files.readAllBytes(Paths.get(filePath)));
+    // A byte range of a data file holding whole records, read with the given bytes around it so
+    // that every chunk parses as an array of its own.
+    private record Chunk(long start, long end, byte[] prefix, byte[] suffix) {
+    }
 
-        List<User> userList = objectMapper.readValue(usersString, new TypeReference<>() {
-        });
-        database.setUsers((ArrayList<User>) userList);
+    // Streams the top-level array and hands over each record as soon as it is bound, so the
+    // raw text is never held in memory as a whole.
+    private <T> void readRecords(InputStream in, String fileName, Class<T> type, Consumer<T> consumer) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new JsonParseException(parser, "Expected an array of records in " + fileName);
+
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT)
+                consumer.accept(reader.readValue(parser));
+
+            if (token != JsonToken.END_ARRAY)
+                throw new JsonParseException(parser, "Expected a record in " + fileName);
+        }
     }
 
-    public void getProvidersList() throws IOException {
-        String filePath = dataPath + "providers.json";
-        String providersString = new String(Files.readAllBytes(Paths.get(filePath)));
+    private static InputStream open(FileChannel channel, Chunk chunk) throws IOException {
+        channel.position(chunk.start());
+        InputStream body = ByteStreams.limit(Channels.newInputStream(channel), chunk.end() - chunk.start());
+        return new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(chunk.prefix()), body, new ByteArrayInputStream(chunk.suffix()))));
+    }
+
+    private <T> List<T> parseChunk(String fileName, Chunk chunk, Class<T> type) {
+        List<T> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(Paths.get(dataPath + fileName), StandardOpenOption.READ)) {
+            readRecords(open(channel, chunk), fileName, type, records::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    // Cuts a file larger than chunkSize at the first record starting past every chunkSize bytes.
+    // Finding record boundaries only needs the nesting depth and whether we are inside a string,
+    // which one pass over the raw bytes tracks far faster than parsing. A file with fewer than two
+    // records to cut at is read as one chunk, which also leaves malformed files to the parser.
+    private List<Chunk> split(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Chunk> whole = List.of(new Chunk(0, size, NONE, NONE));
+            if (size <= chunkSize)
+                return whole;
+
+            List<Long> starts = new ArrayList<>();
+            List<Long> ends = new ArrayList<>();
+            long nextStart = 0;
+            long lastComma = -1;
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            long offset = 0;
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (inString) {
+                        if (escaped)
+                            escaped = false;
+                        else if (b == '\\')
+                            escaped = true;
+                        else if (b == '"')
+                            inString = false;
+                    } else if (b == '"') {
+                        inString = true;
+                    } else if (b == '{' || b == '[') {
+                        if (depth == 1 && b == '{' && offset >= nextStart) {
+                            if (!starts.isEmpty())
+                                ends.add(lastComma);
+                            starts.add(offset);
+                            nextStart = offset + chunkSize;
+                        }
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                    } else if (b == ',' && depth == 1) {
+                        lastComma = offset;
+                    }
+                    offset++;
+                }
+                buffer.clear();
+            }
+
+            if (starts.size() < 2)
+                return whole;
+
+            List<Chunk> chunks = new ArrayList<>();
+            for (int i = 0; i < ends.size(); i++)
+                chunks.add(new Chunk(starts.get(i), ends.get(i), OPEN, CLOSE));
+            chunks.add(new Chunk(starts.get(starts.size() - 1), size, OPEN, NONE));
+            return chunks;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        List<Provider> providerList = objectMapper.readValue(providersString, new TypeReference<>() {
+    // Parses the chunks of a file concurrently and completes with all its records in file order.
+    private <T> CompletableFuture<List<T>> parseFile(String fileName, Class<T> type, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> split(Paths.get(dataPath + fileName)), executor).thenCompose(chunks -> {
+            List<CompletableFuture<List<T>>> parts = new ArrayList<>();
+            for (Chunk chunk : chunks)
+                parts.add(CompletableFuture.supplyAsync(() -> parseChunk(fileName, chunk, type), executor));
+
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                if (parts.size() == 1)
+                    return parts.get(0).join();
+
+                List<T> records = new ArrayList<>();
+                for (CompletableFuture<List<T>> part : parts)
+                    records.addAll(part.join());
+                return records;
+            });
         });
-        database.setProviders((ArrayList<Provider>) providerList);
     }
 
-    public void getCommoditiesList() throws IOException {
-        String filePath = dataPath + "commodities.json";
-        String commoditiesString = new String(Files.readAllBytes(Paths.get(filePath)));
+    // Where each comment of a chunk lies in the file and which commodity it is for, in file order.
+    private record CommentIndex(long[] offsets, int[] lengths, int[] commodityIds, int size) {
+    }
+
+    // Walks the tokens of a chunk of comments, reading only each commodityId and skipping over
+    // every other value, so nothing but the comment's position and commodity is kept.
+    private CommentIndex indexChunk(Path path, Chunk chunk) {
+        long[] offsets = new long[1024];
+        int[] lengths = new int[1024];
+        int[] commodityIds = new int[1024];
+        int size = 0;
+
+        // offsets the parser reports include the bytes put before the chunk
+        long shift = chunk.start() - chunk.prefix().length;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            try (JsonParser parser = objectMapper.getFactory().createParser(open(channel, chunk))) {
+                if (parser.nextToken() != JsonToken.START_ARRAY)
+                    throw new JsonParseException(parser, "Expected an array of records in " + COMMENTS_FILE);
+
+                JsonToken token;
+                while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                    long start = parser.getTokenLocation().getByteOffset();
+                    int commodityId = 0;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("commodityId".equals(field))
+                            commodityId = parser.getValueAsInt();
+                        else
+                            parser.skipChildren();
+                    }
+                    long end = parser.getTokenLocation().getByteOffset() + 1;
 
-        List<Commodity> commodityList = objectMapper.readValue(commoditiesString, new TypeReference<>() {
+                    if (size == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, size * 2);
+                        lengths = Arrays.copyOf(lengths, size * 2);
+                        commodityIds = Arrays.copyOf(commodityIds, size * 2);
+                    }
+                    offsets[size] = shift + start;
+                    lengths[size] = (int) (end - start);
+                    commodityIds[size] = commodityId;
+                    size++;
+                }
+
+                if (token != JsonToken.END_ARRAY)
+                    throw new JsonParseException(parser, "Expected a record in " + COMMENTS_FILE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CommentIndex(offsets, lengths, commodityIds, size);
+    }
+
+    // The comments are read from their file for as long as the application runs, and the data
+    // directory is watched for edits, so they are read from a private copy no edit can reach.
+    private Path copyComments() {
+        try {
+            Path copy = Files.createTempFile("baloot-comments", ".json");
+            copy.toFile().deleteOnExit();
+            Files.copy(Paths.get(dataPath + COMMENTS_FILE), copy, StandardCopyOption.REPLACE_EXISTING);
+            return copy;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Indexes the chunks of the comments file concurrently; the comments themselves are bound
+    // only when they are read.
+    private CompletableFuture<CommentFile> indexComments(Executor executor) {
+        return CompletableFuture.supplyAsync(this::copyComments, executor).thenCompose(copy -> {
+            List<Chunk> chunks = split(copy);
+            List<CompletableFuture<CommentIndex>> parts = new ArrayList<>();
+            for (Chunk chunk : chunks)
+                parts.add(CompletableFuture.supplyAsync(() -> indexChunk(copy, chunk), executor));
+
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                int total = 0;
+                for (CompletableFuture<CommentIndex> part : parts)
+                    total += part.join().size();
+
+                long[] offsets = new long[total];
+                int[] lengths = new int[total];
+                int[] commodityIds = new int[total];
+                int at = 0;
+                for (CompletableFuture<CommentIndex> part : parts) {
+                    CommentIndex index = part.join();
+                    System.arraycopy(index.offsets(), 0, offsets, at, index.size());
+                    System.arraycopy(index.lengths(), 0, lengths, at, index.size());
+                    System.arraycopy(index.commodityIds(), 0, commodityIds, at, index.size());
+                    at += index.size();
+                }
+                try {
+                    return new CommentFile(copy, objectMapper, offsets, lengths, commodityIds);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
         });
-        database.setCommodities((ArrayList<Commodity>) commodityList);
     }
 
-    public void getCommentsList() throws IOException {
-        String filePath = dataPath + "comments.json";
-        String commentsString = new String(Files.readAllBytes(Paths.get(filePath)));
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause)
+                throw cause.getCause();
+            throw e;
+        }
+    }
 
-        List<Comment> commentsList = objectMapper.readValue(commentsString, new TypeReference<>() {
+    private static <T> CompletableFuture<T> timed(CompletableFuture<T> future, String phase, long start, Map<String, Long> timings) {
+        return future.thenApply(result -> {
+            timings.put(phase, (System.nanoTime() - start) / 1_000_000);
+            return result;
         });
-        database.setComments((ArrayList<Comment>) commentsList);
+    }
+
+    /**
+     * Parses all four data files at once on the executor, each split into chunks, and then builds
+     * every table and its indexes from the parsed records, also one table per task. Comments are
+     * only indexed, to be bound when first read. Returns how long each file took to parse and how
+     * long each phase took, in milliseconds.
+     */
+    public Map<String, Long> loadAll(Executor executor) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Long> fileTimings = new ConcurrentHashMap<>();
+        CompletableFuture<List<User>> users = timed(parseFile("users.json", User.class, executor), "users", start, fileTimings);
+        CompletableFuture<List<Provider>> providers = timed(parseFile(PROVIDERS_FILE, Provider.class, executor), "providers", start, fileTimings);
+        CompletableFuture<List<Commodity>> commodities = timed(parseFile(COMMODITIES_FILE, Commodity.class, executor), "commodities", start, fileTimings);
+        CompletableFuture<CommentFile> comments = timed(indexComments(executor), "comments", start, fileTimings);
+        await(CompletableFuture.allOf(users, providers, commodities, comments));
+        long parsed = System.nanoTime();
+
+        await(CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> database.setUsers(users.join()), executor),
+                CompletableFuture.runAsync(() -> database.setProviders(providers.join()), executor),
+                CompletableFuture.runAsync(() -> database.setCommodities(commodities.join()), executor),
+                CompletableFuture.runAsync(() -> database.setComments(comments.join()), executor)));
+        long indexed = System.nanoTime();
+
+        Map<String, Long> timings = new LinkedHashMap<>();
+        for (String file : List.of("users", "providers", "commodities", "comments"))
+            timings.put("parse." + file, fileTimings.get(file));
+        timings.put("parse", (parsed - start) / 1_000_000);
+        timings.put("index", (indexed - parsed) / 1_000_000);
+        timings.put("total", (indexed - start) / 1_000_000);
+        return timings;
+    }
 
-        for (Comment comment : commentsList)
-            comment.setId(commentsList.indexOf(comment));
+    public void getUsersList() throws IOException {
+        database.setUsers(await(parseFile("users.json", User.class, Runnable::run)));
+    }
+
+    public List<Provider> parseProviders() throws IOException {
+        return await(parseFile(PROVIDERS_FILE, Provider.class, Runnable::run));
+    }
+
+    public List<Commodity> parseCommodities() throws IOException {
+        return await(parseFile(COMMODITIES_FILE, Commodity.class, Runnable::run));
+    }
+
+    public void getProvidersList() throws IOException {
+        database.setProviders(parseProviders());
+    }
+
+    public void getCommoditiesList() throws IOException {
+        database.setCommodities(parseCommodities());
+    }
+
+    public void getCommentsList() throws IOException {
+        database.setComments(await(indexComments(Runnable::run)));
     }
 }
@@ -2,29 +2,126 @@ package database;
 
 import model.Comment;
 import model.Commodity;
+import model.CommodityObserver;
 import model.Provider;
 import model.User;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
-@Getter
-@Setter
 public class Database {
     @Getter
     private static final Database instance = new Database();
 
     private Database() {
+        Commodity.setObserver(new CommodityObserver() {
+            @Override
+            public void nameChanged(Commodity commodity) {
+                commodities.nameChanged(commodity);
+            }
+
+            @Override
+            public void categoriesChanged(Commodity commodity) {
+                commodities.categoriesChanged(commodity);
+            }
+
+            @Override
+            public void ratingChanged(Commodity commodity) {
+                commodities.ratingChanged(commodity);
+            }
+
+            @Override
+            public void rating(Commodity commodity, Runnable rate) {
+                catalogLock.readLock().lock();
+                try {
+                    rate.run();
+                } finally {
+                    catalogLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private volatile Table<String, User> users = new Table<>(User::getUsername);
+    private volatile Table<String, Provider> providers = new Table<>(Provider::getId);
+    private volatile CommodityTable commodities = new CommodityTable();
+    private volatile CommentTable comments = new CommentTable();
+    private final AtomicInteger nextCommentId = new AtomicInteger();
+    // rates hold the read side, so none lands on the old table while a reload builds the next one
+    private final ReadWriteLock catalogLock = new ReentrantReadWriteLock();
+
+    public List<User> getUsers() {
+        return users.rows();
+    }
+
+    public List<Provider> getProviders() {
+        return providers.rows();
+    }
+
+    public List<Commodity> getCommodities() {
+        return commodities.rows();
+    }
+
+    public List<Comment> getComments() {
+        return comments.rows();
+    }
+
+    public void setUsers(List<User> users) {
+        this.users = new Table<>(User::getUsername, users);
+    }
+
+    public void setProviders(List<Provider> providers) {
+        this.providers = new Table<>(Provider::getId, providers);
+    }
+
+    public void setCommodities(List<Commodity> commodities) {
+        this.commodities = new CommodityTable(commodities);
+    }
+
+    // Builds the next catalog with rates held off, so its indexes see the ratings it publishes.
+    public void replaceCommodities(Supplier<List<Commodity>> build) {
+        catalogLock.writeLock().lock();
+        try {
+            this.commodities = new CommodityTable(build.get());
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    public void setComments(List<Comment> comments) {
+        int nextId = 0;
+        for (Comment comment : comments)
+            nextId = Math.max(nextId, comment.getId() + 1);
+
+        replaceComments(new CommentTable(comments));
+        nextCommentId.set(nextId);
+    }
+
+    public void setComments(CommentFile comments) {
+        replaceComments(new CommentTable(comments));
+        nextCommentId.set(comments.size());
     }
 
-    private ArrayList<User> users = new ArrayList<>();
-    private ArrayList<Provider> providers = new ArrayList<>();
-    private ArrayList<Commodity> commodities = new ArrayList<>();
-    private ArrayList<Comment> comments = new ArrayList<>();
+    // Closes the comment file the replaced table read from, which nothing reaches any more.
+    private void replaceComments(CommentTable comments) {
+        CommentTable previous = this.comments;
+        this.comments = comments;
+        try {
+            previous.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-    public void addUser(User user) {
-        users.add(user);
+    public boolean addUser(User user) {
+        return users.addIfAbsent(user);
     }
 
     public void addProvider(Provider provider) {
@@ -38,4 +135,52 @@ public class Database {
     public void addComment(Comment comment) {
         comments.add(comment);
     }
+
+    public int generateCommentId() {
+        return nextCommentId.getAndIncrement();
+    }
+
+    public int getNextCommentId() {
+        return nextCommentId.get();
+    }
+
+    public void setNextCommentId(int nextId) {
+        nextCommentId.set(nextId);
+    }
+
+    public User findUserByUsername(String username) {
+        return users.get(username);
+    }
+
+    public Provider findProviderById(String providerId) {
+        return providers.get(providerId);
+    }
+
+    public Commodity findCommodityById(String commodityId) {
+        return commodities.get(commodityId);
+    }
+
+    public Comment findCommentById(int commentId) {
+        return comments.get(commentId);
+    }
+
+    public List<Comment> getCommentsForCommodity(int commodityId) {
+        return comments.getByCommodity(commodityId);
+    }
+
+    public ArrayList<Commodity> filterCommoditiesByName(String name) {
+        return commodities.filterByName(name);
+    }
+
+    public ArrayList<Commodity> filterCommoditiesByCategory(String category) {
+        return commodities.filterByCategory(category);
+    }
+
+    public ArrayList<Commodity> getSuggestionCandidates(Commodity commodity, int limit) {
+        return commodities.suggestionCandidates(commodity, limit);
+    }
+
+    public ArrayList<Commodity> filterCommoditiesByCategories(List<String> categories, boolean matchAll) {
+        return commodities.filterByCategories(categories, matchAll);
+    }
 }
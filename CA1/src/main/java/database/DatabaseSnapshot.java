@@ -0,0 +1,328 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+import model.Vote;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary image of everything in {@link Database}: users with their rates, buy lists and
+ * purchases, providers, commodities with their raters, comments with their votes, and the
+ * next comment id. Reading it back is one pass over memory-mapped windows of the file, with
+ * no text parsing or reflective data binding.
+ */
+public class DatabaseSnapshot {
+    private static final int MAGIC = 0x42414c53;
+    private static final int VERSION = 1;
+    private static final long WINDOW = 1L << 30;
+
+    public static void write(Database database, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            List<User> users = database.getUsers();
+            out.writeInt(users.size());
+            for (User user : users)
+                writeUser(out, user);
+
+            List<Provider> providers = database.getProviders();
+            out.writeInt(providers.size());
+            for (Provider provider : providers)
+                writeProvider(out, provider);
+
+            List<Commodity> commodities = database.getCommodities();
+            out.writeInt(commodities.size());
+            for (Commodity commodity : commodities)
+                writeCommodity(out, commodity);
+
+            List<Comment> comments = database.getComments();
+            out.writeInt(comments.size());
+            for (Comment comment : comments)
+                writeComment(out, comment);
+
+            out.writeInt(database.getNextCommentId());
+            // a file cut short anywhere fails on this marker instead of loading partially
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void read(Database database, Path path) throws IOException {
+        read(database, path, WINDOW);
+    }
+
+    // Nothing is stored in the database unless the whole file reads back intact.
+    static void read(Database database, Path path, long window) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel, window);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Not a Baloot snapshot: " + path);
+
+            int userCount = in.readInt();
+            List<User> users = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++)
+                users.add(readUser(in));
+
+            int providerCount = in.readInt();
+            List<Provider> providers = new ArrayList<>(providerCount);
+            for (int i = 0; i < providerCount; i++)
+                providers.add(readProvider(in));
+
+            int commodityCount = in.readInt();
+            List<Commodity> commodities = new ArrayList<>(commodityCount);
+            for (int i = 0; i < commodityCount; i++)
+                commodities.add(readCommodity(in));
+
+            int commentCount = in.readInt();
+            List<Comment> comments = new ArrayList<>(commentCount);
+            for (int i = 0; i < commentCount; i++)
+                comments.add(readComment(in));
+
+            int nextCommentId = in.readInt();
+            if (in.readInt() != MAGIC)
+                throw new IOException("Truncated Baloot snapshot: " + path);
+
+            database.setUsers(users);
+            database.setProviders(providers);
+            database.setCommodities(commodities);
+            database.setComments(comments);
+            database.setNextCommentId(nextCommentId);
+        }
+    }
+
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        writeString(out, user.getUsername());
+        writeString(out, user.getPassword());
+        writeString(out, user.getEmail());
+        writeString(out, user.getBirthDate());
+        writeString(out, user.getAddress());
+        out.writeFloat(user.getCredit());
+
+        Map<Integer, Integer> rates = user.getCommoditiesRates();
+        out.writeInt(rates.size());
+        for (var entry : rates.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        writeCounts(out, user.getBuyList());
+        writeCounts(out, user.getPurchasedList());
+    }
+
+    private static User readUser(MappedInput in) throws IOException {
+        User user = new User(in.readString(), in.readString(), in.readString(), in.readString(), in.readString());
+        user.setCredit(in.readFloat());
+
+        int rateCount = in.readInt();
+        Map<Integer, Integer> rates = new HashMap<>();
+        for (int i = 0; i < rateCount; i++)
+            rates.put(in.readInt(), in.readInt());
+        user.setCommoditiesRates(rates);
+        user.setBuyList(readCounts(in));
+        user.setPurchasedList(readCounts(in));
+        return user;
+    }
+
+    private static void writeProvider(DataOutputStream out, Provider provider) throws IOException {
+        writeString(out, provider.getId());
+        writeString(out, provider.getName());
+        writeString(out, provider.getRegistryDate());
+        writeString(out, provider.getImage());
+    }
+
+    private static Provider readProvider(MappedInput in) throws IOException {
+        return new Provider(in.readString(), in.readString(), in.readString(), in.readString());
+    }
+
+    private static void writeCommodity(DataOutputStream out, Commodity commodity) throws IOException {
+        writeString(out, commodity.getId());
+        writeString(out, commodity.getName());
+        writeString(out, commodity.getProviderId());
+        out.writeInt(commodity.getPrice());
+
+        List<String> categories = commodity.getCategories();
+        out.writeInt(categories == null ? -1 : categories.size());
+        if (categories != null)
+            for (String category : categories)
+                writeString(out, category);
+
+        out.writeFloat(commodity.getRating());
+        out.writeInt(commodity.getInStock());
+        writeString(out, commodity.getImage());
+        out.writeFloat(commodity.getInitRate());
+        writeCounts(out, commodity.getUserRate());
+    }
+
+    private static Commodity readCommodity(MappedInput in) throws IOException {
+        Commodity commodity = new Commodity();
+        commodity.setId(in.readString());
+        commodity.setName(in.readString());
+        commodity.setProviderId(in.readString());
+        commodity.setPrice(in.readInt());
+
+        int categoryCount = in.readInt();
+        if (categoryCount < 0) {
+            commodity.setCategories(null);
+        } else {
+            ArrayList<String> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++)
+                categories.add(in.readString());
+            commodity.setCategories(categories);
+        }
+
+        commodity.setRating(in.readFloat());
+        commodity.setInStock(in.readInt());
+        commodity.setImage(in.readString());
+        commodity.setInitRate(in.readFloat());
+        commodity.setUserRate(readCounts(in));
+        return commodity;
+    }
+
+    private static void writeComment(DataOutputStream out, Comment comment) throws IOException {
+        out.writeInt(comment.getId());
+        writeString(out, comment.getUserEmail());
+        writeString(out, comment.getUsername());
+        out.writeInt(comment.getCommodityId());
+        writeString(out, comment.getText());
+        writeString(out, comment.getDate());
+        out.writeInt(comment.getLike());
+        out.writeInt(comment.getDislike());
+
+        Map<String, Vote> votes = comment.getUserVote();
+        out.writeInt(votes.size());
+        for (var entry : votes.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeByte(entry.getValue().ordinal());
+        }
+    }
+
+    private static Comment readComment(MappedInput in) throws IOException {
+        Comment comment = new Comment();
+        comment.setId(in.readInt());
+        comment.setUserEmail(in.readString());
+        comment.setUsername(in.readString());
+        comment.setCommodityId(in.readInt());
+        comment.setText(in.readString());
+        comment.setDate(in.readString());
+        comment.setLike(in.readInt());
+        comment.setDislike(in.readInt());
+
+        int voteCount = in.readInt();
+        Map<String, Vote> votes = new HashMap<>();
+        for (int i = 0; i < voteCount; i++)
+            votes.put(in.readString(), Vote.values()[in.readByte()]);
+        comment.setUserVote(votes);
+        return comment;
+    }
+
+    private static void writeCounts(DataOutputStream out, Map<String, Integer> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (var entry : counts.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readCounts(MappedInput in) throws IOException {
+        int count = in.readInt();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < count; i++)
+            counts.put(in.readString(), in.readInt());
+        return counts;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Maps the file a window at a time, remapping from the current offset whenever a value
+    // would run past the end of the window, so files over 2GB read the same way.
+    private static class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private final long window;
+        private MappedByteBuffer buffer;
+        private long base;
+
+        MappedInput(FileChannel channel, long window) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window = window;
+            this.buffer = map(0);
+        }
+
+        private MappedByteBuffer map(long offset) throws IOException {
+            base = offset;
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(window, size - offset));
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes)
+                return;
+
+            long offset = base + buffer.position();
+            if (size - offset < bytes)
+                throw new EOFException();
+            if (bytes > window)
+                throw new IOException("Snapshot value of " + bytes + " bytes exceeds the mapping window");
+            buffer = map(offset);
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        float readFloat() throws IOException {
+            ensure(4);
+            return buffer.getFloat();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0)
+                return null;
+
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package database;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of row positions. The position space is cut into blocks of 4096 bits and
+ * blocks without any set bit are never allocated, so sparse categories stay small. Words are
+ * updated atomically, so readers never lock.
+ */
+public class PositionBitmap {
+    private static final int BLOCK_SHIFT = 12;
+    private static final int WORDS_PER_BLOCK = (1 << BLOCK_SHIFT) / Long.SIZE;
+
+    private volatile AtomicLongArray[] blocks = new AtomicLongArray[0];
+
+    public void set(int position) {
+        AtomicLongArray block = blockFor(position >>> BLOCK_SHIFT);
+        int word = wordIndex(position);
+        long mask = 1L << position;
+        long current;
+        do {
+            current = block.get(word);
+        } while ((current & mask) == 0 && !block.compareAndSet(word, current, current | mask));
+    }
+
+    public void clear(int position) {
+        AtomicLongArray[] current = blocks;
+        int blockIndex = position >>> BLOCK_SHIFT;
+        if (blockIndex >= current.length || current[blockIndex] == null)
+            return;
+
+        AtomicLongArray block = current[blockIndex];
+        int word = wordIndex(position);
+        long mask = 1L << position;
+        long value;
+        do {
+            value = block.get(word);
+        } while ((value & mask) != 0 && !block.compareAndSet(word, value, value & ~mask));
+    }
+
+    public boolean get(int position) {
+        AtomicLongArray[] current = blocks;
+        int blockIndex = position >>> BLOCK_SHIFT;
+        if (blockIndex >= current.length || current[blockIndex] == null)
+            return false;
+
+        return (current[blockIndex].get(wordIndex(position)) & (1L << position)) != 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        forEach(List.of(this), true, action);
+    }
+
+    /**
+     * Visits, in ascending order, the positions set in all ({@code matchAll}) or in any of
+     * the given bitmaps, combining them one 64-bit word at a time.
+     */
+    public static void forEach(List<PositionBitmap> bitmaps, boolean matchAll, IntConsumer action) {
+        if (bitmaps.isEmpty())
+            return;
+
+        AtomicLongArray[][] directories = new AtomicLongArray[bitmaps.size()][];
+        int blockCount = matchAll ? Integer.MAX_VALUE : 0;
+        for (int i = 0; i < directories.length; i++) {
+            directories[i] = bitmaps.get(i).blocks;
+            blockCount = matchAll
+                    ? Math.min(blockCount, directories[i].length)
+                    : Math.max(blockCount, directories[i].length);
+        }
+
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+            for (int word = 0; word < WORDS_PER_BLOCK; word++) {
+                long bits = matchAll ? -1L : 0L;
+                for (AtomicLongArray[] directory : directories) {
+                    AtomicLongArray block = blockIndex < directory.length ? directory[blockIndex] : null;
+                    long value = block == null ? 0L : block.get(word);
+                    bits = matchAll ? bits & value : bits | value;
+                }
+
+                int base = (blockIndex << BLOCK_SHIFT) + word * Long.SIZE;
+                while (bits != 0) {
+                    action.accept(base + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    private AtomicLongArray blockFor(int blockIndex) {
+        AtomicLongArray[] current = blocks;
+        if (blockIndex < current.length && current[blockIndex] != null)
+            return current[blockIndex];
+
+        synchronized (this) {
+            current = blocks;
+            if (blockIndex >= current.length)
+                current = Arrays.copyOf(current, Math.max(blockIndex + 1, current.length * 2));
+            else if (current[blockIndex] != null)
+                return current[blockIndex];
+            else
+                current = current.clone();
+
+            current[blockIndex] = new AtomicLongArray(WORDS_PER_BLOCK);
+            blocks = current;
+            return current[blockIndex];
+        }
+    }
+
+    private static int wordIndex(int position) {
+        return (position >>> 6) & (WORDS_PER_BLOCK - 1);
+    }
+}
@@ -0,0 +1,78 @@
+package database;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Sorted set of row positions. Writers are serialized; readers work on an immutable
+ * (array, length) pair, so appends at the tail are done in place and anything else copies.
+ */
+public class PostingList {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static class Snapshot {
+        final int[] positions;
+        volatile int size;
+
+        Snapshot(int[] positions, int size) {
+            this.positions = positions;
+            this.size = size;
+        }
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(new int[INITIAL_CAPACITY], 0);
+
+    public synchronized void add(int position) {
+        Snapshot current = snapshot;
+        int size = current.size;
+        if (size > 0 && current.positions[size - 1] >= position) {
+            int index = Arrays.binarySearch(current.positions, 0, size, position);
+            if (index >= 0)
+                return;
+
+            int insertAt = -index - 1;
+            int[] positions = new int[Math.max(INITIAL_CAPACITY, size + 1)];
+            System.arraycopy(current.positions, 0, positions, 0, insertAt);
+            positions[insertAt] = position;
+            System.arraycopy(current.positions, insertAt, positions, insertAt + 1, size - insertAt);
+            snapshot = new Snapshot(positions, size + 1);
+            return;
+        }
+
+        if (size == current.positions.length) {
+            current = new Snapshot(Arrays.copyOf(current.positions, size * 2), size);
+            snapshot = current;
+        }
+        current.positions[size] = position;
+        current.size = size + 1;
+    }
+
+    public synchronized void remove(int position) {
+        Snapshot current = snapshot;
+        int size = current.size;
+        int index = Arrays.binarySearch(current.positions, 0, size, position);
+        if (index < 0)
+            return;
+
+        int[] positions = new int[Math.max(INITIAL_CAPACITY, current.positions.length)];
+        System.arraycopy(current.positions, 0, positions, 0, index);
+        System.arraycopy(current.positions, index + 1, positions, index, size - index - 1);
+        snapshot = new Snapshot(positions, size - 1);
+    }
+
+    public boolean contains(int position) {
+        Snapshot current = snapshot;
+        return Arrays.binarySearch(current.positions, 0, current.size, position) >= 0;
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    public void forEach(IntConsumer action) {
+        Snapshot current = snapshot;
+        int size = current.size;
+        for (int i = 0; i < size; i++)
+            action.accept(current.positions[i]);
+    }
+}
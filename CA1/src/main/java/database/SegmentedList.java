@@ -0,0 +1,63 @@
+package database;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Append-only list made of fixed-size segments. Appends are serialized, reads never lock:
+ * a slot is written before the size that covers it is published, so a reader that sees
+ * {@code size} also sees every element below it.
+ */
+public class SegmentedList<T> extends AbstractList<T> implements RandomAccess {
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private volatile Object[][] segments = new Object[0][];
+    private volatile int size;
+
+    public SegmentedList() {
+    }
+
+    public SegmentedList(Collection<? extends T> items) {
+        for (T item : items)
+            append(item);
+    }
+
+    @Override
+    public boolean add(T item) {
+        append(item);
+        return true;
+    }
+
+    public synchronized int append(T item) {
+        int index = size;
+        int segment = index >>> SEGMENT_SHIFT;
+        Object[][] current = segments;
+        if (segment == current.length) {
+            current = Arrays.copyOf(current, segment + 1);
+            current[segment] = new Object[SEGMENT_SIZE];
+            segments = current;
+        }
+
+        current[segment][index & SEGMENT_MASK] = item;
+        size = index + 1;
+        return index;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        return (T) segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,84 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps row positions ordered by rating, once globally and once per category.
+ * <p>
+ * Suggestions score a commodity as 11 for sharing any category with the target plus its
+ * rating. Whatever sits in the top K of that score either shares a category with the target,
+ * so it is among the K + 1 best rated of that category, or it does not, so it is among the
+ * K + 1 best rated overall (the extra slot covers the target itself). Reading those few heads
+ * therefore yields a candidate set that always contains the exact top K.
+ */
+public class SuggestionIndex {
+    private record Entry(float rating, int position) {
+    }
+
+    private static final Comparator<Entry> BEST_RATED_FIRST = Comparator
+            .comparing(Entry::rating, Comparator.reverseOrder())
+            .thenComparingInt(Entry::position);
+
+    private final NavigableSet<Entry> all = new ConcurrentSkipListSet<>(BEST_RATED_FIRST);
+    private final Map<String, NavigableSet<Entry>> byCategory = new ConcurrentHashMap<>();
+    private Entry[] indexedEntries = new Entry[16];
+    private String[][] indexedCategories = new String[16][];
+
+    public synchronized void put(int position, float rating, List<String> categories) {
+        if (position >= indexedEntries.length) {
+            int capacity = Math.max(position + 1, indexedEntries.length * 2);
+            indexedEntries = Arrays.copyOf(indexedEntries, capacity);
+            indexedCategories = Arrays.copyOf(indexedCategories, capacity);
+        }
+
+        Entry previous = indexedEntries[position];
+        if (previous != null) {
+            all.remove(previous);
+            for (String category : indexedCategories[position])
+                byCategory.get(category).remove(previous);
+        }
+
+        Entry entry = new Entry(rating, position);
+        String[] names = categories == null ? new String[0] : categories.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(String[]::new);
+        all.add(entry);
+        for (String category : names)
+            byCategory.computeIfAbsent(category, key -> new ConcurrentSkipListSet<>(BEST_RATED_FIRST)).add(entry);
+
+        indexedEntries[position] = entry;
+        indexedCategories[position] = names;
+    }
+
+    /**
+     * Visits the positions that can make the top {@code limit} suggestions for a commodity in
+     * the given categories. A position may be visited more than once.
+     */
+    public void candidates(List<String> categories, int limit, IntConsumer action) {
+        List<NavigableSet<Entry>> sources = new ArrayList<>();
+        sources.add(all);
+        if (categories != null)
+            for (String category : categories) {
+                NavigableSet<Entry> entries = category == null ? null : byCategory.get(category);
+                if (entries != null)
+                    sources.add(entries);
+            }
+
+        for (NavigableSet<Entry> entries : sources) {
+            Iterator<Entry> iterator = entries.iterator();
+            for (int i = 0; i <= limit && iterator.hasNext(); i++)
+                action.accept(iterator.next().position());
+        }
+    }
+}
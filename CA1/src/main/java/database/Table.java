@@ -0,0 +1,66 @@
+package database;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Rows of one entity type plus a primary-key index into them. Rows with a null key are
+ * stored but not indexed; on duplicate keys the first row wins, as the old scans did.
+ */
+public class Table<K, T> {
+    private final Function<T, K> keyOf;
+    private final SegmentedList<T> rows = new SegmentedList<>();
+    private final Map<K, Integer> positions = new ConcurrentHashMap<>();
+
+    public Table(Function<T, K> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    public Table(Function<T, K> keyOf, Collection<? extends T> items) {
+        this(keyOf);
+        for (T item : items)
+            add(item);
+    }
+
+    public synchronized int add(T item) {
+        int position = rows.append(item);
+        K key = keyOf.apply(item);
+        if (key != null)
+            positions.putIfAbsent(key, position);
+
+        return position;
+    }
+
+    public synchronized boolean addIfAbsent(T item) {
+        K key = keyOf.apply(item);
+        if (key != null && positions.containsKey(key))
+            return false;
+
+        add(item);
+        return true;
+    }
+
+    public T get(K key) {
+        int position = positionOf(key);
+        return position < 0 ? null : rows.get(position);
+    }
+
+    public int positionOf(K key) {
+        if (key == null)
+            return -1;
+
+        Integer position = positions.get(key);
+        return position == null ? -1 : position;
+    }
+
+    public List<T> rows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+}
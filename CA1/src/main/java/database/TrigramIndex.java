@@ -0,0 +1,78 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from character trigrams to the row positions whose text contains them.
+ * A substring query of three or more characters can only match rows that appear in the
+ * posting list of every trigram of the query, so only those candidates need verifying.
+ */
+public class TrigramIndex {
+    public static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, PostingList> postings = new ConcurrentHashMap<>();
+    private String[] indexedTexts = new String[16];
+
+    public synchronized void put(int position, String text) {
+        if (position >= indexedTexts.length)
+            indexedTexts = Arrays.copyOf(indexedTexts, Math.max(position + 1, indexedTexts.length * 2));
+
+        String previous = indexedTexts[position];
+        if (previous != null)
+            for (long gram : grams(previous))
+                if (text == null || !text.contains(decode(gram)))
+                    postings.get(gram).remove(position);
+
+        indexedTexts[position] = text;
+        if (text != null)
+            for (long gram : grams(text))
+                postings.computeIfAbsent(gram, key -> new PostingList()).add(position);
+    }
+
+    /**
+     * Returns the ascending positions that may contain {@code query}; callers still have to
+     * verify each one. Queries shorter than a trigram cannot be answered and yield null.
+     */
+    public List<Integer> candidates(String query) {
+        if (query.length() < GRAM_LENGTH)
+            return null;
+
+        List<PostingList> lists = new ArrayList<>();
+        for (long gram : grams(query)) {
+            PostingList list = postings.get(gram);
+            if (list == null)
+                return new ArrayList<>();
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        List<Integer> result = new ArrayList<>();
+        List<PostingList> others = lists.subList(1, lists.size());
+        lists.get(0).forEach(position -> {
+            for (PostingList other : others)
+                if (!other.contains(position))
+                    return;
+            result.add(position);
+        });
+        return result;
+    }
+
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++)
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+
+        return grams;
+    }
+
+    private static String decode(long gram) {
+        return new String(new char[]{(char) (gram >>> 32), (char) (gram >>> 16), (char) gram});
+    }
+}
@@ -0,0 +1,171 @@
+package database;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of length-prefixed, checksummed records. {@link #append} returns once its
+ * record is forced to disk. With group commit, records appended while another caller's fsync is
+ * in flight are buffered and forced together by whichever of them syncs next, so concurrent
+ * writers share fsyncs instead of queueing for one each. Once a write or fsync fails, the log
+ * cannot tell which of the records it carried reached the disk, so it refuses every later append.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private static final int MAX_RECORD = 1 << 24;
+
+    private final FileChannel channel;
+    private final boolean groupCommit;
+    private final Object syncLock = new Object();
+
+    // guarded by this
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+
+    // guarded by syncLock
+    private long durable;
+    private volatile IOException failure;
+    // bytes forced to disk so far, read without the lock by callers deciding to checkpoint
+    private volatile long size;
+
+    public WriteAheadLog(Path path, boolean groupCommit) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.groupCommit = groupCommit;
+        channel.position(channel.size());
+        size = channel.size();
+    }
+
+    /**
+     * Hands every intact record to the handler in order, then cuts off whatever follows the last
+     * one: a record torn by a crash mid-write was never acknowledged, so it is dropped.
+     */
+    public void replay(Consumer<byte[]> handler) throws IOException {
+        long offset = 0;
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        CRC32 crc = new CRC32();
+        try {
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > MAX_RECORD)
+                    break;
+
+                byte[] record = new byte[length];
+                in.readFully(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum)
+                    break;
+
+                handler.accept(record);
+                offset += 8 + length;
+            }
+        } catch (EOFException ignored) {
+        }
+
+        channel.truncate(offset);
+        channel.position(offset);
+        size = offset;
+    }
+
+    public void append(byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        checkHealthy();
+        if (!groupCommit) {
+            synchronized (syncLock) {
+                checkHealthy();
+                ByteBuffer frame = ByteBuffer.allocate(8 + record.length);
+                frame.putInt(record.length).putInt((int) crc.getValue()).put(record).flip();
+                force(frame);
+            }
+            return;
+        }
+
+        long ticket;
+        synchronized (this) {
+            DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(record.length);
+            out.writeInt((int) crc.getValue());
+            out.write(record);
+            ticket = ++appended;
+        }
+        sync(ticket);
+    }
+
+    // Whoever holds syncLock writes out everything appended so far, so by the time a waiting
+    // caller gets the lock its record has usually been forced already. A batch that fails takes
+    // the log down with it, so none of its callers, nor any later one, is told it is durable.
+    private void sync(long ticket) throws IOException {
+        synchronized (syncLock) {
+            if (durable >= ticket)
+                return;
+            checkHealthy();
+
+            byte[] batch;
+            long upTo;
+            synchronized (this) {
+                batch = pending.toByteArray();
+                pending.reset();
+                upTo = appended;
+            }
+            force(ByteBuffer.wrap(batch));
+            durable = upTo;
+        }
+    }
+
+    private void checkHealthy() throws IOException {
+        IOException failure = this.failure;
+        if (failure != null)
+            throw new IOException("Write-ahead log failed earlier", failure);
+    }
+
+    // Called with syncLock held.
+    private void force(ByteBuffer buffer) throws IOException {
+        try {
+            int length = buffer.remaining();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+            size += length;
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    // Drops every record, for when their effects have been captured elsewhere.
+    public void truncate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                pending.reset();
+                durable = appended;
+            }
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            size = 0;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,13 +1,15 @@
 package model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 @Getter
 @Setter
@@ -21,9 +23,24 @@ public class Comment {
     private String text;
     private String date;
 
-    private int like;
-    private int dislike;
-    private Map<String, String> userVote = new HashMap<>();
+    private volatile int like;
+    private volatile int dislike;
+    private Map<String, Vote> userVote = new ConcurrentHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private CommentStore store;
+
+    private static final AtomicIntegerFieldUpdater<Comment> LIKE =
+            AtomicIntegerFieldUpdater.newUpdater(Comment.class, "like");
+    private static final AtomicIntegerFieldUpdater<Comment> DISLIKE =
+            AtomicIntegerFieldUpdater.newUpdater(Comment.class, "dislike");
+
+    private static volatile MutationListener mutationListener;
+
+    public static void setMutationListener(MutationListener mutationListener) {
+        Comment.mutationListener = mutationListener;
+    }
 
     public Comment(int id, String userEmail, String username, int commodityId, String text) {
         this.id = id;
@@ -40,18 +57,60 @@ public class Comment {
         return dateFormat.format(currentDate);
     }
 
+    public void keepIn(CommentStore store) {
+        this.store = store;
+    }
+
+    public void setUserVote(Map<String, Vote> userVote) {
+        this.userVote = new ConcurrentHashMap<>(userVote);
+    }
+
     public void addUserVote(String userName, String vote) {
-        userVote.put(userName, vote);
+        addUserVote(userName, Vote.fromString(vote));
+    }
 
-        this.like = 0;
-        this.dislike = 0;
+    public void addUserVote(String userName, Vote vote) {
+        if (userName == null)
+            return;
 
-        for (String key : userVote.keySet()) {
-            if (userVote.get(key).equals("like"))
-                this.like += 1;
-            else if (userVote.get(key).equals("dislike"))
-                this.dislike += 1;
+        CommentStore store = this.store;
+        if (store != null)
+            store.vote(this, userName, vote);
+        else
+            voteInPlace(userName, vote);
+    }
+
+    // Votes on this very copy; for the store a comment is kept in.
+    public void voteInPlace(String userName, Vote vote) {
+        MutationListener listener = mutationListener;
+        if (listener == null) {
+            applyVote(userName, vote);
+            return;
         }
+
+        // holding the comment keeps its votes in the order the listener sees them
+        synchronized (this) {
+            if (userVote.get(userName) != vote)
+                listener.voted(this, userName, vote, () -> applyVote(userName, vote));
+        }
+    }
+
+    // The map swap is atomic, so each caller adjusts the counters by exactly the difference
+    // between its vote and the one it replaced, however concurrent votes interleave.
+    private void applyVote(String userName, Vote vote) {
+        Vote previous = userVote.put(userName, vote);
+        if (previous == vote)
+            return;
+
+        countVote(previous, -1);
+        countVote(vote, 1);
+    }
+
+    private void countVote(Vote vote, int delta) {
+        if (vote == Vote.LIKE)
+            LIKE.addAndGet(this, delta);
+        else if (vote == Vote.DISLIKE)
+            DISLIKE.addAndGet(this, delta);
     }
 
 }
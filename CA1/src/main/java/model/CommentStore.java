@@ -0,0 +1,7 @@
+package model;
+
+// Where comments that are not all held in memory are kept; a vote on one of them goes through
+// the store, which applies it to the copy it keeps rather than to whichever copy was voted on.
+public interface CommentStore {
+    void vote(Comment comment, String userName, Vote vote);
+}
@@ -1,14 +1,16 @@
 package model;
 
 import exceptions.NotInStock;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 @Getter
 @Setter
@@ -19,13 +21,37 @@ public class Commodity {
     private String providerId;
     private int price;
     private ArrayList<String> categories = new ArrayList<>();
-    private float rating;
+    private volatile float rating;
     private int inStock;
     private String image;
 
-    private Map<String, Integer> userRate = new HashMap<>();
+    private Map<String, Integer> userRate = new ConcurrentHashMap<>();
     private float initRate;
 
+    // Sum of userRate in the low 32 bits and its size above them, so both move in one atomic add.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long rateTotals;
+
+    // The commodity that took this one's place when a catalog reload changed its listing.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Commodity replacement;
+
+    private static final AtomicLongFieldUpdater<Commodity> RATE_TOTALS =
+            AtomicLongFieldUpdater.newUpdater(Commodity.class, "rateTotals");
+
+    private static volatile CommodityObserver observer;
+    private static volatile MutationListener mutationListener;
+
+    public static void setObserver(CommodityObserver observer) {
+        Commodity.observer = observer;
+    }
+
+    public static void setMutationListener(MutationListener mutationListener) {
+        Commodity.mutationListener = mutationListener;
+    }
+
     public Commodity(String id, String name, String providerId, int price, ArrayList<String> categories, float initRate, int inStock) {
         this.setId(id);
         this.setName(name);
@@ -36,23 +62,107 @@ public class Commodity {
         this.setInStock(inStock);
     }
 
+    public void setName(String name) {
+        this.name = name;
+        if (observer != null)
+            observer.nameChanged(this);
+    }
+
+    public void setCategories(ArrayList<String> categories) {
+        this.categories = categories;
+        if (observer != null)
+            observer.categoriesChanged(this);
+    }
+
+    public void setRating(float rating) {
+        this.rating = rating;
+        if (observer != null)
+            observer.ratingChanged(this);
+    }
+
     public void updateInStock(int amount) throws NotInStock {
         if ((this.inStock + amount) < 0)
             throw new NotInStock();
         this.inStock += amount;
     }
 
+    public void setUserRate(Map<String, Integer> userRate) {
+        this.userRate = new ConcurrentHashMap<>(userRate);
+
+        long totals = 0;
+        for (int score : this.userRate.values())
+            totals += (1L << 32) + score;
+        this.rateTotals = totals;
+    }
+
     public void addRate(String username, int score) {
-        userRate.put(username, score);
-        this.calcRating();
+        if (username == null)
+            return;
+
+        MutationListener listener = mutationListener;
+        if (listener == null) {
+            applyRate(username, score);
+            return;
+        }
+
+        // holding the commodity keeps its rates in the order the listener sees them
+        synchronized (this) {
+            listener.rated(this, username, score, () -> applyRate(username, score));
+        }
+    }
+
+    private void applyRate(String username, int score) {
+        CommodityObserver observer = Commodity.observer;
+        if (observer == null) {
+            rate(username, score);
+            return;
+        }
+
+        // the observer holds the rate off while a reload builds the next catalog, and by the
+        // time it runs this commodity may have been replaced; the rate goes to the listing in use
+        observer.rating(this, () -> current().rate(username, score));
+    }
+
+    private void rate(String username, int score) {
+        Integer previous = userRate.put(username, score);
+        long delta = previous == null ? (1L << 32) + score : score - previous;
+        this.calcRating(RATE_TOTALS.addAndGet(this, delta));
+    }
+
+    private Commodity current() {
+        Commodity commodity = this;
+        while (commodity.replacement != null)
+            commodity = commodity.replacement;
+        return commodity;
     }
 
-    private void calcRating() {
-        float sum = 0;
-        for (Map.Entry<String, Integer> entry : this.userRate.entrySet()) {
-            sum += entry.getValue();
+    // Takes the place of the commodity a reload found with a different listing. The raters move
+    // here and the rating is recomputed from them over the new initial rate; rates still posted
+    // on the previous object are forwarded. Called while the observer holds rates off, before
+    // this commodity is published, so the index is not told of a rating it has not seen yet.
+    public void replace(Commodity previous) {
+        this.setUserRate(previous.getUserRate());
+        long totals = this.rateTotals;
+        if (totals != 0) {
+            int sum = (int) totals;
+            long count = (totals - sum) >> 32;
+            this.rating = (this.initRate + sum) / (count + 1);
         }
+        previous.replacement = this;
+    }
 
-        this.rating = ((this.initRate + sum) / (this.userRate.size() + 1));
+    // Another rater may publish a rating between our add and our write; re-reading the totals
+    // until they are stable makes the last write always reflect the latest totals.
+    private void calcRating(long totals) {
+        while (true) {
+            int sum = (int) totals;
+            long count = (totals - sum) >> 32;
+            this.setRating((this.initRate + sum) / (count + 1));
+
+            long current = this.rateTotals;
+            if (current == totals)
+                return;
+            totals = current;
+        }
     }
 }
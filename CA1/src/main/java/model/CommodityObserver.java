@@ -0,0 +1,17 @@
+package model;
+
+public interface CommodityObserver {
+    default void nameChanged(Commodity commodity) {
+    }
+
+    default void categoriesChanged(Commodity commodity) {
+    }
+
+    default void ratingChanged(Commodity commodity) {
+    }
+
+    // Runs a rate on the commodity; lets the observer hold it off while it rebuilds its indexes.
+    default void rating(Commodity commodity, Runnable rate) {
+        rate.run();
+    }
+}
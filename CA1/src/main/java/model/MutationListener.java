@@ -0,0 +1,17 @@
+package model;
+
+// Told of each change before it is made; the change itself is handed over to run once the
+// listener is done with it, so a listener that records changes never records one after it shows.
+public interface MutationListener {
+    default void rated(Commodity commodity, String username, int score, Runnable change) {
+        change.run();
+    }
+
+    default void voted(Comment comment, String username, Vote vote, Runnable change) {
+        change.run();
+    }
+
+    default void creditAdded(User user, float amount, Runnable change) {
+        change.run();
+    }
+}
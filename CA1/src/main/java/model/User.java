@@ -25,6 +25,12 @@ public class User {
     private Map<String, Integer> buyList = new HashMap<>();
     private Map<String, Integer> purchasedList = new HashMap<>();
 
+    private static volatile MutationListener mutationListener;
+
+    public static void setMutationListener(MutationListener mutationListener) {
+        User.mutationListener = mutationListener;
+    }
+
     public User(String username, String password, String email, String birthDate, String address) {
         this.username = username;
         this.password = password;
@@ -37,6 +43,19 @@ public class User {
         if (amount < 0)
             throw new InvalidCreditRange();
 
+        MutationListener listener = mutationListener;
+        if (listener == null) {
+            increaseCredit(amount);
+            return;
+        }
+
+        // holding the user keeps its changes in the order the listener sees them
+        synchronized (this) {
+            listener.creditAdded(this, amount, () -> increaseCredit(amount));
+        }
+    }
+
+    private void increaseCredit(float amount) {
         this.credit += amount;
         System.out.println("FIKE: " + getUsername() + ' ' + this.credit);
     }
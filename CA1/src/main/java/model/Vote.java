@@ -0,0 +1,27 @@
+package model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+// Serialized by its lowercase name, the strings API clients have always sent and received.
+public enum Vote {
+    LIKE,
+    DISLIKE,
+    NEUTRAL;
+
+    @JsonCreator
+    public static Vote fromString(String vote) {
+        if ("like".equals(vote))
+            return LIKE;
+        if ("dislike".equals(vote))
+            return DISLIKE;
+
+        return NEUTRAL;
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+}
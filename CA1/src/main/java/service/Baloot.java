@@ -2,6 +2,7 @@ package service;
 
 import database.DataParser;
 import database.Database;
+import database.DatabaseSnapshot;
 import model.Comment;
 import model.Commodity;
 import model.Provider;
@@ -9,14 +10,42 @@ import model.User;
 import exceptions.*;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
 
 public class Baloot {
+    public static final String SNAPSHOT_PROPERTY = "baloot.snapshot";
+    public static final String MUTATION_LOG_PROPERTY = "baloot.wal";
+    // past this size the log is emptied into the snapshot, with mutations held off meanwhile
+    private static final long CHECKPOINT_BYTES = 64L << 20;
+
     private static Baloot instance;
 
+    private volatile Map<String, Long> loadTimings = Map.of();
+    private volatile MutationLog mutationLog;
+    private final Object signups = new Object();
+
     private Baloot() {
+        String mutationLogPath = System.getProperty(MUTATION_LOG_PROPERTY);
+        Path snapshot = getSnapshotPath();
+        // the log is only ever emptied into a snapshot, so without one it would grow for good
+        if (mutationLogPath != null && snapshot == null)
+            throw new IllegalStateException(MUTATION_LOG_PROPERTY + " needs " + SNAPSHOT_PROPERTY + " to checkpoint into");
+
         fetchAndStoreData();
+
+        if (mutationLogPath != null) {
+            try {
+                enableMutationLog(Path.of(mutationLogPath), snapshot);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     public static Baloot getInstance() {
@@ -26,19 +55,118 @@ public class Baloot {
         return instance;
     }
 
+    public Path getSnapshotPath() {
+        String path = System.getProperty(SNAPSHOT_PROPERTY);
+        return path == null ? null : Path.of(path);
+    }
+
+    public Map<String, Long> getLoadTimings() {
+        return loadTimings;
+    }
+
     public void fetchAndStoreData() {
-        DataParser dataParser = new DataParser(Database.getInstance());
+        Path snapshot = getSnapshotPath();
+        if (snapshot != null && Files.exists(snapshot)) {
+            try {
+                long start = System.nanoTime();
+                DatabaseSnapshot.read(Database.getInstance(), snapshot);
+                loadTimings = Map.of("snapshot", (System.nanoTime() - start) / 1_000_000);
+                return;
+            } catch (IOException e) {
+                // an unreadable snapshot leaves the database untouched, so start from the JSON files
+                System.err.println("Ignoring snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
 
+        DataParser dataParser = new DataParser(Database.getInstance());
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         try {
-            dataParser.getUsersList();
-            dataParser.getProvidersList();
-            dataParser.getCommoditiesList();
-            dataParser.getCommentsList();
+            loadTimings = dataParser.loadAll(executor);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
         }
     }
 
+    // With mutations logged, they are held off while the snapshot is written and the log is
+    // emptied after it, as the snapshot then holds their effects.
+    public void saveSnapshot(Path path) throws IOException {
+        MutationLog log = mutationLog;
+        if (log == null)
+            DatabaseSnapshot.write(Database.getInstance(), path);
+        else
+            log.checkpoint(() -> DatabaseSnapshot.write(Database.getInstance(), path));
+    }
+
+    // Replays the log over the data loaded so far, then records every later mutation in it.
+    public void enableMutationLog(Path path) throws IOException {
+        MutationLog log = new MutationLog(path);
+        log.replay(this);
+
+        mutationLog = log;
+        User.setMutationListener(log);
+        Commodity.setMutationListener(log);
+        Comment.setMutationListener(log);
+    }
+
+    // As above, and once the log grows past CHECKPOINT_BYTES, a background thread checkpoints it
+    // into the snapshot.
+    public void enableMutationLog(Path path, Path snapshot) throws IOException {
+        enableMutationLog(path);
+
+        ExecutorService checkpointer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "mutation-log-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mutationLog.requestCheckpointPast(CHECKPOINT_BYTES, () -> checkpointer.execute(() -> {
+            try {
+                saveSnapshot(snapshot);
+            } catch (IOException e) {
+                System.err.println("Checkpoint into " + snapshot + " failed: " + e.getMessage());
+            }
+        }));
+    }
+
+    public void disableMutationLog() throws IOException {
+        MutationLog log = mutationLog;
+        if (log == null)
+            return;
+
+        User.setMutationListener(null);
+        Commodity.setMutationListener(null);
+        Comment.setMutationListener(null);
+        mutationLog = null;
+        log.close();
+    }
+
+    // Runs a change, first making its log record durable when mutations are being logged.
+    private void logged(BiConsumer<MutationLog, Runnable> entry, Runnable change) {
+        MutationLog log = mutationLog;
+        if (log == null)
+            change.run();
+        else
+            entry.accept(log, change);
+    }
+
+    private interface Change {
+        void apply() throws Exception;
+    }
+
+    // For changes already checked, under the locks they run under, to be unable to fail.
+    private static Runnable checked(Change change) {
+        return () -> {
+            try {
+                change.apply();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
     public void login(String userId, String password) throws NotExistentUser, IncorrectPassword {
         User user = this.getUserById(userId);
         if (!user.getPassword().equals(password))
@@ -50,7 +178,10 @@ public class Baloot {
         User user = getUserById(userId);
         Commodity commodity = getCommodityById(commodityId);
 
-        user.addBuyItem(commodity);
+        // holding the user keeps its changes in the order they are logged
+        synchronized (user) {
+            logged((log, change) -> log.addedToBuyList(userId, commodityId, change), () -> user.addBuyItem(commodity));
+        }
     }
 
     public void removeCommodityFromUserBuyList(String userId, String commodityId)
@@ -63,7 +194,13 @@ public class Baloot {
         User user = getUserById(userId);
         Commodity commodity = getCommodityById(commodityId);
 
-        user.removeItemFromBuyList(commodity);
+        synchronized (user) {
+            if (!user.getBuyList().containsKey(commodity.getId()))
+                throw new CommodityIsNotInBuyList();
+
+            logged((log, change) -> log.removedFromBuyList(userId, commodityId, change),
+                    checked(() -> user.removeItemFromBuyList(commodity)));
+        }
     }
 
     public float getCurrentBuyListPrice(User user) {
@@ -79,8 +216,41 @@ public class Baloot {
         return total;
     }
 
+    // Purchases of the same commodity take its stock one at a time, so a purchase holds every
+    // commodity it buys, taken in id order so two purchases never wait on each other in a cycle,
+    // and is checked in full before anything changes or is logged. Purchases of different
+    // commodities are logged side by side and share the log's group commit.
     public void withdrawPayableAmount(User user) throws InsufficientCredit, NotInStock {
+        synchronized (user) {
+            List<Commodity> commodities = new ArrayList<>();
+            for (String id : new TreeSet<>(user.getBuyList().keySet())) {
+                Commodity commodity = Database.getInstance().findCommodityById(id);
+                if (commodity != null)
+                    commodities.add(commodity);
+            }
+            withdrawPayableAmount(user, commodities, 0);
+        }
+    }
+
+    private void withdrawPayableAmount(User user, List<Commodity> commodities, int held) throws InsufficientCredit, NotInStock {
+        if (held < commodities.size()) {
+            synchronized (commodities.get(held)) {
+                withdrawPayableAmount(user, commodities, held + 1);
+            }
+            return;
+        }
+
         float amount = getCurrentBuyListPrice(user);
+        if (amount > user.getCredit())
+            throw new InsufficientCredit();
+        for (Commodity commodity : commodities)
+            if (commodity.getInStock() < user.getBuyList().get(commodity.getId()))
+                throw new NotInStock();
+
+        logged((log, change) -> log.purchased(user, amount, change), checked(() -> completePurchase(user, amount)));
+    }
+
+    void completePurchase(User user, float amount) throws InsufficientCredit, NotInStock {
         user.withdrawCredit(amount);
 
         for (var entry : new ArrayList<>(user.getBuyList().entrySet())) {
@@ -98,31 +268,31 @@ public class Baloot {
     }
 
     public User getUserById(String userId) throws NotExistentUser {
-        for (User user : Database.getInstance().getUsers())
-            if (user.getUsername().equals(userId))
-                return user;
+        User user = Database.getInstance().findUserByUsername(userId);
+        if (user == null)
+            throw new NotExistentUser();
 
-        throw new NotExistentUser();
+        return user;
     }
 
     public Provider getProviderById(String providerId) throws NotExistentProvider {
-        for (Provider provider : Database.getInstance().getProviders())
-            if (Objects.equals(provider.getId(), providerId))
-                return provider;
+        Provider provider = Database.getInstance().findProviderById(providerId);
+        if (provider == null)
+            throw new NotExistentProvider();
 
-        throw new NotExistentProvider();
+        return provider;
     }
 
     public Commodity getCommodityById(String commodityId) throws NotExistentCommodity {
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (Objects.equals(commodity.getId(), commodityId))
-                return commodity;
+        Commodity commodity = Database.getInstance().findCommodityById(commodityId);
+        if (commodity == null)
+            throw new NotExistentCommodity();
 
-        throw new NotExistentCommodity();
+        return commodity;
     }
 
     public ArrayList<Commodity> getCommodities() {
-        return Database.getInstance().getCommodities();
+        return new ArrayList<>(Database.getInstance().getCommodities());
     }
 
     public ArrayList<Commodity> getCommoditiesProvidedByProvider(String providerId) {
@@ -135,39 +305,37 @@ public class Baloot {
     }
 
     public ArrayList<Comment> getCommentsForCommodity(int commodityId) {
-        ArrayList<Comment> comments = new ArrayList<>();
-        for (Comment comment : Database.getInstance().getComments())
-            if (comment.getCommodityId() == commodityId)
-                comments.add(comment);
+        return new ArrayList<>(Database.getInstance().getCommentsForCommodity(commodityId));
+    }
 
-        return comments;
+    public ArrayList<Comment> getCommentsForCommodity(int commodityId, int cursor, int limit) {
+        List<Comment> comments = Database.getInstance().getCommentsForCommodity(commodityId);
+        int size = comments.size();
+        int from = Math.min(cursor, size);
+        int to = (int) Math.min((long) from + limit, size);
+
+        return new ArrayList<>(comments.subList(from, to));
     }
 
     public Comment getCommentById(int commentId) throws NotExistentComment {
-        for (Comment comment : Database.getInstance().getComments())
-            if (comment.getId() == commentId)
-                return comment;
+        Comment comment = Database.getInstance().findCommentById(commentId);
+        if (comment == null)
+            throw new NotExistentComment();
 
-        throw new NotExistentComment();
+        return comment;
     }
 
 
     public ArrayList<Commodity> filterCommoditiesByCategory(String category) {
-        ArrayList<Commodity> result = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (commodity.getCategories().contains(category))
-                result.add(commodity);
+        return Database.getInstance().filterCommoditiesByCategory(category);
+    }
 
-        return result;
+    public ArrayList<Commodity> filterCommoditiesByCategories(List<String> categories, boolean matchAll) {
+        return Database.getInstance().filterCommoditiesByCategories(categories, matchAll);
     }
 
     public ArrayList<Commodity> filterCommoditiesByName(String name) {
-        ArrayList<Commodity> result = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (commodity.getName().contains(name))
-                result.add(commodity);
-
-        return result;
+        return Database.getInstance().filterCommoditiesByName(name);
     }
 
     public ArrayList<Commodity> filterCommoditiesByProviderName(String name) {
@@ -203,19 +371,21 @@ public class Baloot {
     }
 
     public void addUser(User user) throws UsernameAlreadyTaken {
-        for (User user1 : Database.getInstance().getUsers())
-            if (user1.getUsername().equals(user.getUsername()))
+        Database database = Database.getInstance();
+        synchronized (signups) {
+            if (database.findUserByUsername(user.getUsername()) != null)
                 throw new UsernameAlreadyTaken();
 
-        Database.getInstance().addUser(user);
+            logged((log, change) -> log.signedUp(user, change), () -> database.addUser(user));
+        }
     }
 
     public void addComment(Comment comment) {
-        Database.getInstance().addComment(comment);
+        logged((log, change) -> log.commented(comment, change), () -> Database.getInstance().addComment(comment));
     }
 
     public int generateCommentId() {
-        return Database.getInstance().getComments().size();
+        return Database.getInstance().generateCommentId();
     }
 
     public int isInSimilarCategoryWithFirstCommodity(Commodity c1, Commodity c2) {
@@ -226,30 +396,22 @@ public class Baloot {
         return 0;
     }
 
+    public float getSuggestionScore(Commodity commodity, Commodity candidate) {
+        return 11 * isInSimilarCategoryWithFirstCommodity(commodity, candidate) + candidate.getRating();
+    }
+
     public ArrayList<Commodity> suggestSimilarCommodities(Commodity commodity) {
         int MAX_NUMBER_OF_COMMODITY_SUGGESTIONS = 4;
-        ArrayList<Commodity> results = new ArrayList<>();
-        Hashtable<Commodity, Float> commodityScore = new Hashtable<>();
-
-        for (Commodity commodity1 : Database.getInstance().getCommodities()) {
-            if (commodity == commodity1)
-                continue;
-
-            float score = 11 * isInSimilarCategoryWithFirstCommodity(commodity, commodity1) + commodity1.getRating();
-            commodityScore.put(commodity1, score);
-        }
+        ArrayList<Commodity> candidates = Database.getInstance()
+                .getSuggestionCandidates(commodity, MAX_NUMBER_OF_COMMODITY_SUGGESTIONS);
 
-        List<Map.Entry<Commodity, Float>> list = new ArrayList<>(commodityScore.entrySet());
-        list.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        TopKSelector selector = new TopKSelector(MAX_NUMBER_OF_COMMODITY_SUGGESTIONS);
+        for (int i = 0; i < candidates.size(); i++)
+            selector.offer(getSuggestionScore(commodity, candidates.get(i)), i);
 
-        int count = 0;
-        for (Map.Entry<Commodity, Float> entry : list) {
-            results.add(entry.getKey());
-
-            count += 1;
-            if (count >= MAX_NUMBER_OF_COMMODITY_SUGGESTIONS)
-                break;
-        }
+        ArrayList<Commodity> results = new ArrayList<>();
+        for (int i : selector.drainDescending())
+            results.add(candidates.get(i));
 
         return results;
     }
@@ -0,0 +1,261 @@
+package service;
+
+import database.Database;
+import database.WriteAheadLog;
+import exceptions.*;
+import model.Comment;
+import model.Commodity;
+import model.MutationListener;
+import model.User;
+import model.Vote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Records each change made through {@link Baloot}, and the rates, votes and credit top-ups
+ * made on the models it hands out, in a {@link WriteAheadLog}. Each call makes its record
+ * durable and only then runs the change, so nothing is visible before it would survive a crash,
+ * and a change that depends on another, like a vote on a new comment, is always logged after
+ * it. Concurrent requests share fsyncs through the log's group commit.
+ */
+public class MutationLog implements MutationListener, AutoCloseable {
+    private static final byte SIGNUP = 1;
+    private static final byte COMMENT = 2;
+    private static final byte RATE = 3;
+    private static final byte VOTE = 4;
+    private static final byte CREDIT = 5;
+    private static final byte BUY = 6;
+    private static final byte UNBUY = 7;
+    private static final byte PURCHASE = 8;
+
+    private interface Fields {
+        void write(DataOutput out) throws IOException;
+    }
+
+    public interface Checkpoint {
+        void write() throws IOException;
+    }
+
+    private final WriteAheadLog log;
+    // shared by each mutation from its record to its change, held alone by a checkpoint
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    // once the log outgrows checkpointSize, checkpointRequest is run until a checkpoint empties it
+    private volatile long checkpointSize = Long.MAX_VALUE;
+    private volatile Runnable checkpointRequest;
+    private final AtomicBoolean checkpointRequested = new AtomicBoolean();
+
+    public MutationLog(Path path) throws IOException {
+        this.log = new WriteAheadLog(path, true);
+    }
+
+    private void append(byte type, Fields fields) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            fields.write(out);
+            log.append(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void record(byte type, Fields fields, Runnable change) {
+        checkpointLock.readLock().lock();
+        try {
+            append(type, fields);
+            change.run();
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+
+        if (log.size() > checkpointSize && checkpointRequested.compareAndSet(false, true))
+            checkpointRequest.run();
+    }
+
+    // Has the request run, once, whenever the log grows past the given size; it should start a
+    // checkpoint elsewhere, as the mutation that crossed the size is still waiting to return.
+    public void requestCheckpointPast(long size, Runnable request) {
+        this.checkpointRequest = request;
+        this.checkpointSize = size;
+    }
+
+    public void signedUp(User user, Runnable change) {
+        record(SIGNUP, out -> {
+            writeString(out, user.getUsername());
+            writeString(out, user.getPassword());
+            writeString(out, user.getEmail());
+            writeString(out, user.getBirthDate());
+            writeString(out, user.getAddress());
+        }, change);
+    }
+
+    public void commented(Comment comment, Runnable change) {
+        record(COMMENT, out -> {
+            out.writeInt(comment.getId());
+            writeString(out, comment.getUserEmail());
+            writeString(out, comment.getUsername());
+            out.writeInt(comment.getCommodityId());
+            writeString(out, comment.getText());
+            writeString(out, comment.getDate());
+        }, change);
+    }
+
+    @Override
+    public void rated(Commodity commodity, String username, int score, Runnable change) {
+        record(RATE, out -> {
+            writeString(out, commodity.getId());
+            writeString(out, username);
+            out.writeInt(score);
+        }, change);
+    }
+
+    @Override
+    public void voted(Comment comment, String username, Vote vote, Runnable change) {
+        record(VOTE, out -> {
+            out.writeInt(comment.getId());
+            writeString(out, username);
+            out.writeByte(vote.ordinal());
+        }, change);
+    }
+
+    @Override
+    public void creditAdded(User user, float amount, Runnable change) {
+        record(CREDIT, out -> {
+            writeString(out, user.getUsername());
+            out.writeFloat(amount);
+        }, change);
+    }
+
+    public void addedToBuyList(String username, String commodityId, Runnable change) {
+        record(BUY, out -> {
+            writeString(out, username);
+            writeString(out, commodityId);
+        }, change);
+    }
+
+    public void removedFromBuyList(String username, String commodityId, Runnable change) {
+        record(UNBUY, out -> {
+            writeString(out, username);
+            writeString(out, commodityId);
+        }, change);
+    }
+
+    // The amount is kept rather than recomputed, as prices may differ by the time it is replayed.
+    public void purchased(User user, float amount, Runnable change) {
+        record(PURCHASE, out -> {
+            writeString(out, user.getUsername());
+            out.writeFloat(amount);
+        }, change);
+    }
+
+    /**
+     * Applies every logged mutation to the data Baloot currently holds. Baloot must not be
+     * logging to this log yet, or the replayed mutations would be logged again. A mutation that
+     * no longer applies, say to a commodity since removed from the catalog, is skipped.
+     */
+    public void replay(Baloot baloot) throws IOException {
+        log.replay(record -> {
+            try {
+                apply(baloot, new DataInputStream(new ByteArrayInputStream(record)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void apply(Baloot baloot, DataInput in) throws IOException {
+        try {
+            switch (in.readByte()) {
+                case SIGNUP -> baloot.addUser(new User(readString(in), readString(in), readString(in), readString(in), readString(in)));
+                case COMMENT -> {
+                    Comment comment = new Comment();
+                    comment.setId(in.readInt());
+                    comment.setUserEmail(readString(in));
+                    comment.setUsername(readString(in));
+                    comment.setCommodityId(in.readInt());
+                    comment.setText(readString(in));
+                    comment.setDate(readString(in));
+                    baloot.addComment(comment);
+                    Database database = Database.getInstance();
+                    database.setNextCommentId(Math.max(database.getNextCommentId(), comment.getId() + 1));
+                }
+                case RATE -> {
+                    Commodity commodity = baloot.getCommodityById(readString(in));
+                    commodity.addRate(readString(in), in.readInt());
+                }
+                case VOTE -> {
+                    Comment comment = baloot.getCommentById(in.readInt());
+                    comment.addUserVote(readString(in), Vote.values()[in.readByte()]);
+                }
+                case CREDIT -> {
+                    User user = baloot.getUserById(readString(in));
+                    user.addCredit(in.readFloat());
+                }
+                case BUY -> baloot.addCommodityToUserBuyList(readString(in), readString(in));
+                case UNBUY -> baloot.removeCommodityFromUserBuyList(readString(in), readString(in));
+                case PURCHASE -> {
+                    User user = baloot.getUserById(readString(in));
+                    baloot.completePurchase(user, in.readFloat());
+                }
+                default -> throw new IOException("Unknown mutation record");
+            }
+        } catch (UsernameAlreadyTaken | NotExistentUser | NotExistentCommodity | NotExistentComment
+                 | MissingUserId | MissingCommodityId | CommodityIsNotInBuyList | AlreadyInBuyList
+                 | InvalidCreditRange | InsufficientCredit | NotInStock ignored) {
+        }
+    }
+
+    /**
+     * Writes a snapshot of the data the logged mutations produced, then drops them. Mutations
+     * wait while it runs, so each one is either in the snapshot or still in the log after it.
+     */
+    public void checkpoint(Checkpoint snapshot) throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            snapshot.write();
+            log.truncate();
+        } finally {
+            checkpointRequested.set(false);
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
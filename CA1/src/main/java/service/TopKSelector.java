@@ -0,0 +1,93 @@
+package service;
+
+/**
+ * Keeps the {@code k} highest scored items seen so far in a min-heap of primitive scores,
+ * so ranking n items costs O(n log k) time and no per-item allocation. Items are plain int
+ * handles, typically indexes into the caller's candidate list.
+ */
+public class TopKSelector {
+    private final float[] scores;
+    private final int[] items;
+    private int size;
+
+    public TopKSelector(int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("k must not be negative");
+
+        this.scores = new float[k];
+        this.items = new int[k];
+    }
+
+    public void offer(float score, int item) {
+        if (size < scores.length) {
+            scores[size] = score;
+            items[size] = item;
+            siftUp(size++);
+        } else if (size > 0 && Float.compare(score, scores[0]) > 0) {
+            scores[0] = score;
+            items[0] = item;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Empties the selector and returns the kept items, best score first.
+     */
+    public int[] drainDescending() {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = items[0];
+            size--;
+            scores[0] = scores[size];
+            items[0] = items[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (Float.compare(scores[parent], scores[index]) <= 0)
+                return;
+
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && Float.compare(scores[left], scores[smallest]) < 0)
+                smallest = left;
+            if (right < size && Float.compare(scores[right], scores[smallest]) < 0)
+                smallest = right;
+            if (smallest == index)
+                return;
+
+            swap(smallest, index);
+            index = smallest;
+        }
+    }
+
+    private void swap(int first, int second) {
+        float score = scores[first];
+        scores[first] = scores[second];
+        scores[second] = score;
+
+        int item = items[first];
+        items[first] = items[second];
+        items[second] = item;
+    }
+}
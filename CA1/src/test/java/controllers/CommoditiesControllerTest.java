@@ -17,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import service.Baloot;
 import java.util.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 public class CommoditiesControllerTest {
@@ -194,7 +195,7 @@ public class CommoditiesControllerTest {
         doReturn(commodity).when(baloot).getCommodityById(commodity.getId());
         doReturn(commentArrayList).when(baloot).getCommentsForCommodity(Integer.parseInt(commodity.getId()));
 
-        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodity.getId());
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodity.getId(), null, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(2, Objects.requireNonNull(response.getBody()).size());
@@ -202,12 +203,57 @@ public class CommoditiesControllerTest {
         assertEquals(comment2.getId(), response.getBody().get(1).getId());
     }
 
+    @Test
+    public void testGetCommodityCommentPage() throws NotExistentCommodity {
+        var commodity = new Commodity();
+        commodity.setId("1");
+        ArrayList<Comment> page = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            var comment = new Comment();
+            comment.setId(10 + i);
+            page.add(comment);
+        }
+        doReturn(commodity).when(baloot).getCommodityById(commodity.getId());
+        doReturn(page).when(baloot).getCommentsForCommodity(1, 10, 3);
+
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodity.getId(), 10, 2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, Objects.requireNonNull(response.getBody()).size());
+        assertEquals("12", response.getHeaders().getFirst(CommoditiesController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void testGetCommodityCommentLastPage() throws NotExistentCommodity {
+        var commodity = new Commodity();
+        commodity.setId("1");
+        doReturn(commodity).when(baloot).getCommodityById(commodity.getId());
+        doReturn(new ArrayList<>(List.of(new Comment()))).when(baloot).getCommentsForCommodity(1, 0, 21);
+
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodity.getId(), 0, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, Objects.requireNonNull(response.getBody()).size());
+        assertNull(response.getHeaders().getFirst(CommoditiesController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void testGetCommodityCommentInvalidCursor() throws NotExistentCommodity {
+        var commodity = new Commodity();
+        commodity.setId("1");
+        doReturn(commodity).when(baloot).getCommodityById(commodity.getId());
+
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodity.getId(), -1, 5);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     public void testGetCommodityCommentFromNonExistentCommodity() throws NotExistentCommodity {
         var commodityId = "1";
         doThrow(NotExistentCommodity.class).when(baloot).getCommodityById(commodityId);
 
-        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodityId);
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodityId, null, null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
@@ -291,6 +337,38 @@ public class CommoditiesControllerTest {
         assertEquals(commodity2.getCategories().get(0), category);
     }
 
+    @Test
+    public void testSearchCommoditiesByCategories() {
+        var commodity = new Commodity();
+        commodity.setId("1");
+        commodity.setCategories(new ArrayList<>(List.of("phone", "tech")));
+        ArrayList<Commodity> commodityList = new ArrayList<>(List.of(commodity));
+        doReturn(commodityList).when(baloot).filterCommoditiesByCategories(List.of("phone", "tech"), false);
+
+        Map<String, String> request = new HashMap<>();
+        request.put("searchOption", "categories");
+        request.put("searchValue", "phone, tech");
+        request.put("match", "any");
+
+        ResponseEntity<ArrayList<Commodity>> response = commoditiesController.searchCommodities(request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, Objects.requireNonNull(response.getBody()).size());
+        verify(baloot, times(1)).filterCommoditiesByCategories(List.of("phone", "tech"), false);
+    }
+
+    @Test
+    public void testSearchCommoditiesByCategoriesWithInvalidMatch() {
+        Map<String, String> request = new HashMap<>();
+        request.put("searchOption", "categories");
+        request.put("searchValue", "phone");
+        request.put("match", "some");
+
+        ResponseEntity<ArrayList<Commodity>> response = commoditiesController.searchCommodities(request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     public void testSearchCommoditiesByInvalidSearchOption() {
         Map<String, String> request = new HashMap<>();
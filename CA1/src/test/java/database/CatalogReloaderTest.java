@@ -0,0 +1,125 @@
+package database;
+
+import exceptions.NotInStock;
+import model.Commodity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogReloaderTest {
+    private Database database;
+    private DataParser dataParser;
+
+    @TempDir
+    Path folder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        database = Database.getInstance();
+        dataParser = new DataParser(database, folder.toString() + "/");
+        writeCommodities("{\"id\":\"1\",\"name\":\"iPhone\",\"categories\":[\"phone\"],\"inStock\":10}",
+                "{\"id\":\"2\",\"name\":\"Galaxy\",\"categories\":[\"phone\"],\"inStock\":10}",
+                "{\"id\":\"3\",\"name\":\"Pixel\",\"categories\":[\"phone\"],\"inStock\":10}");
+        Files.writeString(folder.resolve("providers.json"), "[{\"id\":\"1\",\"name\":\"apple\"},{\"id\":\"2\",\"name\":\"samsung\"}]");
+        dataParser.getCommoditiesList();
+        dataParser.getProvidersList();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.setCommodities(new ArrayList<>());
+        database.setProviders(new ArrayList<>());
+    }
+
+    private void writeCommodities(String... commodities) throws IOException {
+        Files.writeString(folder.resolve("commodities.json"), "[" + String.join(",", commodities) + "]");
+    }
+
+    @Test
+    void testSwapsInChangedCatalogAndKeepsRuntimeState() throws IOException, NotInStock {
+        CatalogReloader reloader = new CatalogReloader(database, folder.toString() + "/");
+        Commodity iPhone = database.findCommodityById("1");
+        iPhone.updateInStock(-3);
+        Commodity galaxy = database.findCommodityById("2");
+        galaxy.addRate("ali", 6);
+
+        writeCommodities("{\"id\":\"1\",\"name\":\"iPhone\",\"categories\":[\"phone\"],\"inStock\":10}",
+                "{\"id\":\"2\",\"name\":\"Galaxy S\",\"categories\":[\"phone\",\"tech\"],\"rating\":9,\"initRate\":2,\"inStock\":20}",
+                "{\"id\":\"4\",\"name\":\"Nokia\",\"categories\":[\"phone\"],\"inStock\":5}");
+
+        assertEquals(new CatalogReloader.Diff(1, 1, 1), reloader.reloadCommodities());
+
+        assertSame(iPhone, database.findCommodityById("1"));
+        assertEquals(7, iPhone.getInStock());
+        Commodity galaxyS = database.findCommodityById("2");
+        assertEquals(20, galaxyS.getInStock());
+        assertEquals(Map.of("ali", 6), galaxyS.getUserRate());
+        assertEquals(4f, galaxyS.getRating());
+        assertEquals("Galaxy", galaxy.getName());
+        assertNull(database.findCommodityById("3"));
+        assertEquals(List.of("2"), database.filterCommoditiesByName("Galaxy S").stream().map(Commodity::getId).toList());
+        assertEquals(List.of("2"), database.filterCommoditiesByCategory("tech").stream().map(Commodity::getId).toList());
+        assertTrue(database.filterCommoditiesByName("Pixel").isEmpty());
+    }
+
+    @Test
+    void testForwardsRatesOnReplacedCommodities() throws IOException {
+        CatalogReloader reloader = new CatalogReloader(database, folder.toString() + "/");
+        Commodity galaxy = database.findCommodityById("2");
+        galaxy.addRate("ali", 6);
+
+        writeCommodities("{\"id\":\"1\",\"name\":\"iPhone\",\"categories\":[\"phone\"],\"inStock\":10}",
+                "{\"id\":\"2\",\"name\":\"Galaxy S\",\"categories\":[\"phone\"],\"initRate\":2,\"inStock\":10}",
+                "{\"id\":\"3\",\"name\":\"Pixel\",\"categories\":[\"phone\"],\"inStock\":10}");
+        reloader.reloadCommodities();
+        galaxy.addRate("amin", 10);
+
+        Commodity galaxyS = database.findCommodityById("2");
+        assertEquals(Map.of("ali", 6, "amin", 10), galaxyS.getUserRate());
+        assertEquals(6f, galaxyS.getRating());
+        assertEquals(List.of(galaxyS), database.getSuggestionCandidates(database.findCommodityById("1"), 1));
+    }
+
+    @Test
+    void testReloadsProviders() throws IOException {
+        CatalogReloader reloader = new CatalogReloader(database, folder.toString() + "/");
+        Files.writeString(folder.resolve("providers.json"), "[{\"id\":\"1\",\"name\":\"apple inc\"},{\"id\":\"3\",\"name\":\"xiaomi\"}]");
+
+        assertEquals(new CatalogReloader.Diff(1, 1, 1), reloader.reloadProviders());
+        assertEquals("apple inc", database.findProviderById("1").getName());
+        assertNull(database.findProviderById("2"));
+    }
+
+    @Test
+    void testKeepsLiveCatalogWhenFileIsMalformed() throws IOException {
+        CatalogReloader reloader = new CatalogReloader(database, folder.toString() + "/");
+        Files.writeString(folder.resolve("commodities.json"), "[{\"id\":\"1\",\"name\":");
+
+        assertThrows(IOException.class, reloader::reloadCommodities);
+        assertEquals(3, database.getCommodities().size());
+    }
+
+    @Test
+    void testReloadsWhenFileChanges() throws IOException, InterruptedException {
+        try (CatalogReloader reloader = new CatalogReloader(database, folder.toString() + "/")) {
+            reloader.start();
+            writeCommodities("{\"id\":\"1\",\"name\":\"iPhone 15\"}");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (database.getCommodities().size() != 1 && System.currentTimeMillis() < deadline)
+                Thread.sleep(20);
+        }
+
+        assertEquals("iPhone 15", database.findCommodityById("1").getName());
+    }
+}
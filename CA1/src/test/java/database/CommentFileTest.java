@@ -0,0 +1,142 @@
+package database;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.Comment;
+import model.Vote;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommentFileTest {
+    private static final int COMMENTS = 1000;
+    private static final int COMMODITIES = 3;
+
+    private CommentFile file;
+
+    @TempDir
+    Path folder;
+
+    // Comment i is for commodity i % COMMODITIES and says "comment i".
+    @BeforeEach
+    void setUp() throws IOException {
+        Path path = folder.resolve("comments.json");
+        long[] offsets = new long[COMMENTS];
+        int[] lengths = new int[COMMENTS];
+        int[] commodityOf = new int[COMMENTS];
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < COMMENTS; i++) {
+            String record = "{\"username\":\"u" + i + "\",\"commodityId\":" + i % COMMODITIES + ",\"text\":\"comment " + i + "\"}";
+            json.append(i == 0 ? "" : ",");
+            offsets[i] = json.length();
+            lengths[i] = record.length();
+            commodityOf[i] = i % COMMODITIES;
+            json.append(record);
+        }
+        Files.writeString(path, json.append("]"));
+
+        file = new CommentFile(path, new ObjectMapper(), offsets, lengths, commodityOf, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Database.getInstance().setComments(new ArrayList<>());
+        file.close();
+    }
+
+    @Test
+    void testPagesThroughCommodityInFileOrder() {
+        List<Comment> comments = file.getByCommodity(1);
+
+        assertEquals(333, comments.size());
+        for (int i = 0; i < comments.size(); i++) {
+            assertEquals(i * COMMODITIES + 1, comments.get(i).getId());
+            assertEquals("comment " + (i * COMMODITIES + 1), comments.get(i).getText());
+        }
+        assertTrue(file.getByCommodity(7).isEmpty());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedSegments() {
+        List<Comment> comments = file.getByCommodity(0);
+        Comment first = comments.get(0);
+        assertSame(first, comments.get(0));
+
+        comments.get(CommentFile.SEGMENT_SIZE);
+        comments.get(2 * CommentFile.SEGMENT_SIZE);
+
+        assertNotSame(first, comments.get(0));
+        assertEquals(first.getText(), comments.get(0).getText());
+    }
+
+    @Test
+    void testKeepsVotesOnEvictedComments() {
+        file.get(30).addUserVote("ali", "like");
+
+        for (int commodityId = 0; commodityId < COMMODITIES; commodityId++)
+            for (Comment other : file.getByCommodity(commodityId))
+                assertNotNull(other.getText());
+
+        Comment comment = file.get(30);
+        assertEquals("comment 30", comment.getText());
+        assertEquals(1, comment.getLike());
+        assertEquals(Map.of("ali", Vote.LIKE), comment.getUserVote());
+        assertEquals(1, file.read(30).getLike());
+    }
+
+    @Test
+    void testAppliesVotesOnEvictedCopiesToTheKeptOne() {
+        Comment evicted = file.get(0);
+        file.get(COMMODITIES * CommentFile.SEGMENT_SIZE);
+        file.get(2 * COMMODITIES * CommentFile.SEGMENT_SIZE);
+        Comment kept = file.get(0);
+        assertNotSame(evicted, kept);
+
+        evicted.addUserVote("ali", "like");
+        kept.addUserVote("amin", "dislike");
+
+        assertEquals(1, kept.getLike());
+        assertEquals(1, kept.getDislike());
+        assertSame(kept, file.get(0));
+        assertEquals(Map.of("ali", Vote.LIKE, "amin", Vote.DISLIKE), file.read(0).getUserVote());
+    }
+
+    @Test
+    void testReadsEveryCommentWithoutCachingIt() {
+        List<Comment> comments = file.getByCommodity(0);
+        Comment first = comments.get(0);
+
+        for (int id = 0; id < COMMENTS; id++)
+            assertEquals("comment " + id, file.read(id).getText());
+
+        assertSame(first, comments.get(0));
+    }
+
+    @Test
+    void testAddsNewCommentsAfterFileComments() {
+        Database database = Database.getInstance();
+        database.setComments(file);
+        int id = database.generateCommentId();
+        database.addComment(new Comment(id, "ali@gmail.com", "ali", 2, "new"));
+
+        assertEquals(COMMENTS, id);
+        assertEquals(COMMENTS + 1, database.getComments().size());
+        assertEquals("comment 999", database.getComments().get(999).getText());
+        assertEquals("new", database.findCommentById(id).getText());
+        assertEquals("comment 5", database.findCommentById(5).getText());
+
+        List<Comment> comments = database.getCommentsForCommodity(2);
+        assertEquals(334, comments.size());
+        assertEquals("new", comments.get(333).getText());
+        assertEquals(List.of("comment 998", "new"), comments.subList(332, 334).stream().map(Comment::getText).toList());
+    }
+}
@@ -0,0 +1,122 @@
+package database;
+
+import model.Commodity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommodityTableTest {
+    private static final String[] CATEGORIES = {"phone", "tech", "home", "toy", "book"};
+    private static final String[] WORDS = {"phone", "iPhone", "Galaxy", "tablet", "pho", "one", "laptop", "top"};
+
+    private Database database;
+    private ArrayList<Commodity> commodities;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.getInstance();
+        Random random = new Random(42);
+        commodities = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + i);
+            ArrayList<String> categories = new ArrayList<>();
+            for (String category : CATEGORIES)
+                if (random.nextInt(3) == 0)
+                    categories.add(category);
+            commodity.setCategories(categories);
+            commodities.add(commodity);
+        }
+        database.setCommodities(commodities);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.setCommodities(new ArrayList<>());
+    }
+
+    private List<Commodity> scanByName(String name) {
+        List<Commodity> result = new ArrayList<>();
+        for (Commodity commodity : commodities)
+            if (commodity.getName().contains(name))
+                result.add(commodity);
+        return result;
+    }
+
+    private List<Commodity> scanByCategories(List<String> categories, boolean matchAll) {
+        List<Commodity> result = new ArrayList<>();
+        for (Commodity commodity : commodities) {
+            boolean matches = matchAll
+                    ? commodity.getCategories().containsAll(categories)
+                    : categories.stream().anyMatch(commodity.getCategories()::contains);
+            if (matches)
+                result.add(commodity);
+        }
+        return result;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "p", "ph", "pho", "phone", "iPhone", "one 1", "top", "laptop4", "Galaxy Galaxy", "xyz"})
+    void testFilterByNameMatchesScan(String query) {
+        assertEquals(scanByName(query), database.filterCommoditiesByName(query));
+    }
+
+    @Test
+    void testFilterByNameAfterRename() {
+        Commodity commodity = commodities.get(10);
+        String oldName = commodity.getName();
+        commodity.setName("Walkman");
+
+        assertEquals(List.of(commodity), database.filterCommoditiesByName("Walkman"));
+        assertTrue(database.filterCommoditiesByName(oldName).stream().noneMatch(found -> found == commodity));
+        assertEquals(scanByName("one"), database.filterCommoditiesByName("one"));
+    }
+
+    @Test
+    void testFilterByNameAfterAdd() {
+        Commodity commodity = new Commodity();
+        commodity.setId("new");
+        commodity.setName("Walkman phone");
+        database.addCommodity(commodity);
+        commodities.add(commodity);
+
+        assertEquals(scanByName("phone"), database.filterCommoditiesByName("phone"));
+        assertEquals(scanByName("Walkman"), database.filterCommoditiesByName("Walkman"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"phone", "tech", "book", "unknown"})
+    void testFilterByCategoryMatchesScan(String category) {
+        assertEquals(scanByCategories(List.of(category), true), database.filterCommoditiesByCategory(category));
+    }
+
+    @Test
+    void testFilterByCategoriesMatchesScan() {
+        List<String> categories = List.of("phone", "tech");
+
+        assertEquals(scanByCategories(categories, true), database.filterCommoditiesByCategories(categories, true));
+        assertEquals(scanByCategories(categories, false), database.filterCommoditiesByCategories(categories, false));
+        assertEquals(List.of(), database.filterCommoditiesByCategories(List.of("phone", "unknown"), true));
+        assertEquals(scanByCategories(List.of("phone"), false),
+                database.filterCommoditiesByCategories(List.of("phone", "unknown"), false));
+    }
+
+    @Test
+    void testFilterByCategoryAfterCategoriesChange() {
+        Commodity commodity = commodities.get(3);
+        commodity.setCategories(new ArrayList<>(List.of("garden")));
+
+        assertEquals(List.of(commodity), database.filterCommoditiesByCategory("garden"));
+        assertEquals(scanByCategories(List.of("phone"), true), database.filterCommoditiesByCategory("phone"));
+    }
+}
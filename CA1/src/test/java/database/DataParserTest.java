@@ -0,0 +1,134 @@
+package database;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import model.Commodity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataParserTest {
+    private Database database;
+    private DataParser dataParser;
+
+    @TempDir
+    Path folder;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.getInstance();
+        dataParser = new DataParser(database, folder.toString() + "/");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.setUsers(new ArrayList<>());
+        database.setProviders(new ArrayList<>());
+        database.setCommodities(new ArrayList<>());
+        database.setComments(new ArrayList<>());
+    }
+
+    @Test
+    void testLoadsEveryRecord() throws IOException {
+        StringBuilder users = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++)
+            users.append(i == 0 ? "" : ",").append("{\"username\":\"user").append(i).append("\",\"credit\":").append(i).append("}");
+        Files.writeString(folder.resolve("users.json"), users.append("]"));
+        Files.writeString(folder.resolve("commodities.json"),
+                "[{\"id\":\"1\",\"name\":\"گوشی\",\"categories\":[\"phone\"],\"rating\":9.5}]");
+
+        dataParser.getUsersList();
+        dataParser.getCommoditiesList();
+
+        assertEquals(1000, database.getUsers().size());
+        assertEquals(999f, database.findUserByUsername("user999").getCredit());
+        assertEquals("گوشی", database.findCommodityById("1").getName());
+        assertEquals(List.of("1"), database.filterCommoditiesByCategory("phone").stream().map(Commodity::getId).toList());
+    }
+
+    @Test
+    void testNumbersCommentsInFileOrder() throws IOException {
+        Files.writeString(folder.resolve("comments.json"),
+                "[{\"username\":\"ali\",\"commodityId\":1,\"text\":\"good\"},{\"username\":\"amin\",\"commodityId\":\"2\",\"text\":\"bad\"}]");
+
+        dataParser.getCommentsList();
+
+        assertEquals("good", database.findCommentById(0).getText());
+        assertEquals(2, database.findCommentById(1).getCommodityId());
+        assertEquals(1, database.getCommentsForCommodity(2).size());
+        assertEquals(2, database.generateCommentId());
+    }
+
+    @Test
+    void testKeepsReadingCommentsAsLoadedAfterFileChanges() throws IOException {
+        Files.writeString(folder.resolve("comments.json"),
+                "[{\"username\":\"ali\",\"commodityId\":1,\"text\":\"good\"},{\"username\":\"amin\",\"commodityId\":2,\"text\":\"bad\"}]");
+        dataParser.getCommentsList();
+
+        Files.writeString(folder.resolve("comments.json"), "[{\"text\":\"x\"}]");
+
+        assertEquals("good", database.findCommentById(0).getText());
+        assertEquals("bad", database.findCommentById(1).getText());
+    }
+
+    @Test
+    void testParsesLargeFilesInChunks() throws IOException {
+        StringBuilder comments = new StringBuilder("[\n");
+        for (int i = 0; i < 500; i++)
+            comments.append(i == 0 ? "" : ",\n").append("  {\"username\": \"u").append(i)
+                    .append("\", \"commodityId\": ").append(i % 7)
+                    .append(", \"text\": \"{[\\\",\\\\ ,{\" }");
+        Files.writeString(folder.resolve("comments.json"), comments.append("\n]\n"));
+
+        new DataParser(database, folder.toString() + "/", 100).getCommentsList();
+
+        assertEquals(500, database.getComments().size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("u" + i, database.findCommentById(i).getUsername());
+            assertEquals("{[\",\\ ,{", database.findCommentById(i).getText());
+        }
+    }
+
+    @Test
+    void testLoadsAllFilesInParallel() throws IOException {
+        Files.writeString(folder.resolve("users.json"), "[{\"username\":\"ali\"}]");
+        Files.writeString(folder.resolve("providers.json"), "[{\"id\":\"1\"},{\"id\":\"2\"}]");
+        Files.writeString(folder.resolve("commodities.json"), "[{\"id\":\"1\",\"categories\":[\"phone\"]},{\"id\":\"2\"},{\"id\":\"3\"}]");
+        Files.writeString(folder.resolve("comments.json"), "[{\"commodityId\":1},{\"commodityId\":1},{\"commodityId\":1},{\"commodityId\":2}]");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        Map<String, Long> timings;
+        try {
+            timings = new DataParser(database, folder.toString() + "/", 16).loadAll(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, database.getUsers().size());
+        assertEquals(2, database.getProviders().size());
+        assertEquals(3, database.getCommodities().size());
+        assertEquals(1, database.filterCommoditiesByCategory("phone").size());
+        assertEquals(3, database.getCommentsForCommodity(1).size());
+        assertEquals(3, database.findCommentById(3).getId());
+        assertEquals(List.of("parse.users", "parse.providers", "parse.commodities", "parse.comments", "parse", "index", "total"),
+                List.copyOf(timings.keySet()));
+    }
+
+    @Test
+    void testRejectsFileThatIsNotAnArray() throws IOException {
+        Files.writeString(folder.resolve("providers.json"), "{\"id\":\"1\"}");
+
+        assertThrows(JsonParseException.class, () -> dataParser.getProvidersList());
+    }
+}
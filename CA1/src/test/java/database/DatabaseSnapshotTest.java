@@ -0,0 +1,132 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+import model.Vote;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseSnapshotTest {
+    private Database database;
+
+    @TempDir
+    Path folder;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.getInstance();
+        database.setUsers(new ArrayList<>());
+        database.setProviders(new ArrayList<>());
+        database.setCommodities(new ArrayList<>());
+        database.setComments(new ArrayList<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        setUp();
+    }
+
+    private void populate() {
+        User user = new User("user1", "password", "user1@example.com", "2000-01-01", null);
+        user.setCredit(120.5f);
+        user.getCommoditiesRates().put(1, 7);
+        user.getBuyList().put("1", 2);
+        user.getPurchasedList().put("2", 3);
+        database.setUsers(new ArrayList<>(List.of(user, new User("شهاب", "p", "e", "b", "a"))));
+
+        database.setProviders(new ArrayList<>(List.of(new Provider("1", "apple", "1990-01-01", "img"))));
+
+        Commodity phone = new Commodity("1", "iPhone", "1", 1000, new ArrayList<>(List.of("Phone", "Technology")), 8, 5);
+        phone.addRate("user1", 7);
+        Commodity laptop = new Commodity("2", "MacBook", "1", 2000, new ArrayList<>(List.of("Technology")), 9, 1);
+        database.setCommodities(new ArrayList<>(List.of(phone, laptop)));
+
+        Comment comment = new Comment(0, "user1@example.com", "user1", 1, "good");
+        comment.addUserVote("user1", Vote.LIKE);
+        comment.addUserVote("شهاب", Vote.DISLIKE);
+        database.setComments(new ArrayList<>(List.of(comment, new Comment(1, "e", "شهاب", 2, "bad"))));
+        database.generateCommentId();
+        database.generateCommentId();
+        database.generateCommentId();
+    }
+
+    private void assertRestored() {
+        User user = database.findUserByUsername("user1");
+        assertEquals("password", user.getPassword());
+        assertNull(user.getAddress());
+        assertEquals(120.5f, user.getCredit());
+        assertEquals(Map.of(1, 7), user.getCommoditiesRates());
+        assertEquals(Map.of("1", 2), user.getBuyList());
+        assertEquals(Map.of("2", 3), user.getPurchasedList());
+        assertNotNull(database.findUserByUsername("شهاب"));
+
+        assertEquals("apple", database.findProviderById("1").getName());
+
+        Commodity phone = database.findCommodityById("1");
+        assertEquals(List.of("Phone", "Technology"), phone.getCategories());
+        assertEquals(7.5f, phone.getRating());
+        assertEquals(Map.of("user1", 7), phone.getUserRate());
+        phone.addRate("شهاب", 10);
+        assertEquals(25f / 3, phone.getRating());
+        assertEquals(List.of("MacBook"), database.filterCommoditiesByName("Mac").stream().map(Commodity::getName).toList());
+
+        Comment comment = database.findCommentById(0);
+        assertEquals(1, comment.getLike());
+        assertEquals(1, comment.getDislike());
+        assertEquals(Vote.DISLIKE, comment.getUserVote().get("شهاب"));
+        assertEquals(2, database.getCommentsForCommodity(1).size() + database.getCommentsForCommodity(2).size());
+        assertEquals(5, database.generateCommentId());
+    }
+
+    @Test
+    void testWriteAndReadBack() throws IOException {
+        Path path = folder.resolve("baloot.snapshot");
+        populate();
+        DatabaseSnapshot.write(database, path);
+        setUp();
+
+        DatabaseSnapshot.read(database, path);
+
+        assertRestored();
+    }
+
+    @Test
+    void testReadsAcrossMappingWindows() throws IOException {
+        Path path = folder.resolve("baloot.snapshot");
+        populate();
+        DatabaseSnapshot.write(database, path);
+        setUp();
+
+        DatabaseSnapshot.read(database, path, 24);
+
+        assertRestored();
+    }
+
+    @Test
+    void testTruncatedSnapshotLeavesDatabaseUntouched() throws IOException {
+        Path path = folder.resolve("baloot.snapshot");
+        populate();
+        DatabaseSnapshot.write(database, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 2));
+        setUp();
+
+        assertThrows(IOException.class, () -> DatabaseSnapshot.read(database, path));
+        assertTrue(database.getUsers().isEmpty());
+        assertTrue(database.getComments().isEmpty());
+    }
+}
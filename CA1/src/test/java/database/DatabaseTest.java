@@ -0,0 +1,239 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseTest {
+    private static final int WRITERS = 64;
+    private static final int ROWS_PER_WRITER = 500;
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.getInstance();
+        database.setUsers(new ArrayList<>());
+        database.setProviders(new ArrayList<>());
+        database.setCommodities(new ArrayList<>());
+        database.setComments(new ArrayList<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        setUp();
+    }
+
+    private Commodity createCommodity(String id, String name) {
+        Commodity commodity = new Commodity();
+        commodity.setId(id);
+        commodity.setName(name);
+        return commodity;
+    }
+
+    @Test
+    void testFindAfterSet() {
+        User user = new User("user1", "password", "user1@example.com", "2000-01-01", "Tehran");
+        Provider provider = new Provider("1", "apple", "1990-01-01", "");
+        Commodity commodity = createCommodity("1", "iPhone");
+        Comment comment = new Comment(7, "user1@example.com", "user1", 1, "good");
+
+        database.setUsers(new ArrayList<>(List.of(user)));
+        database.setProviders(new ArrayList<>(List.of(provider)));
+        database.setCommodities(new ArrayList<>(List.of(commodity)));
+        database.setComments(new ArrayList<>(List.of(comment)));
+
+        assertSame(user, database.findUserByUsername("user1"));
+        assertSame(provider, database.findProviderById("1"));
+        assertSame(commodity, database.findCommodityById("1"));
+        assertSame(comment, database.findCommentById(7));
+    }
+
+    @Test
+    void testFindAfterAdd() {
+        User user = new User("user1", "password", "user1@example.com", "2000-01-01", "Tehran");
+        Commodity commodity = createCommodity("1", "iPhone");
+        Comment comment = new Comment(0, "user1@example.com", "user1", 1, "good");
+
+        database.addUser(user);
+        database.addCommodity(commodity);
+        database.addComment(comment);
+
+        assertSame(user, database.findUserByUsername("user1"));
+        assertSame(commodity, database.findCommodityById("1"));
+        assertSame(comment, database.findCommentById(0));
+    }
+
+    @Test
+    void testFindMissingOrNullKey() {
+        database.addCommodity(createCommodity("1", "iPhone"));
+
+        assertNull(database.findCommodityById("2"));
+        assertNull(database.findCommodityById(null));
+        assertNull(database.findUserByUsername(null));
+        assertNull(database.findCommentById(0));
+    }
+
+    @Test
+    void testSetReplacesIndex() {
+        database.setCommodities(new ArrayList<>(List.of(createCommodity("1", "iPhone"))));
+        Commodity galaxy = createCommodity("2", "Galaxy");
+        database.setCommodities(new ArrayList<>(List.of(galaxy)));
+
+        assertNull(database.findCommodityById("1"));
+        assertSame(galaxy, database.findCommodityById("2"));
+    }
+
+    @Test
+    void testFirstRowWinsOnDuplicateKey() {
+        Commodity first = createCommodity("1", "iPhone");
+        Commodity second = createCommodity("1", "Galaxy");
+        database.setCommodities(new ArrayList<>(List.of(first, second)));
+
+        assertSame(first, database.findCommodityById("1"));
+    }
+
+    @Test
+    void testCommentsForCommodityKeepInsertionOrder() {
+        Comment first = new Comment(0, "a@example.com", "user1", 1, "first");
+        Comment other = new Comment(1, "a@example.com", "user1", 2, "other");
+        database.setComments(new ArrayList<>(List.of(first, other)));
+        Comment second = new Comment(2, "b@example.com", "user2", 1, "second");
+        database.addComment(second);
+
+        assertEquals(List.of(first, second), database.getCommentsForCommodity(1));
+        assertEquals(List.of(other), database.getCommentsForCommodity(2));
+        assertEquals(List.of(), database.getCommentsForCommodity(3));
+    }
+
+    @Test
+    void testCommentIdsContinueAfterLoadedComments() {
+        database.setComments(new ArrayList<>(List.of(
+                new Comment(0, "a@example.com", "user1", 1, "first"),
+                new Comment(4, "a@example.com", "user1", 1, "second"))));
+
+        assertEquals(5, database.generateCommentId());
+        assertEquals(6, database.generateCommentId());
+    }
+
+    @Test
+    void testConcurrentCommentIdsNeverCollide() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        try {
+            for (int writer = 0; writer < WRITERS; writer++)
+                results.add(executor.submit(() -> {
+                    List<Integer> ids = new ArrayList<>();
+                    for (int i = 0; i < ROWS_PER_WRITER; i++)
+                        ids.add(database.generateCommentId());
+                    return ids;
+                }));
+
+            Set<Integer> ids = new HashSet<>();
+            for (Future<List<Integer>> result : results)
+                ids.addAll(result.get(60, TimeUnit.SECONDS));
+            assertEquals(WRITERS * ROWS_PER_WRITER, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAddUserRejectsTakenUsername() {
+        assertTrue(database.addUser(new User("user1", "password", "a@example.com", "2000-01-01", "Tehran")));
+        assertFalse(database.addUser(new User("user1", "other", "b@example.com", "2000-01-01", "Tehran")));
+        assertEquals(1, database.getUsers().size());
+    }
+
+    @Test
+    void testConcurrentWritersLoseNoRows() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            Future<?> reader = executor.submit(() -> {
+                start.await();
+                while (writing.get())
+                    for (Comment comment : database.getComments())
+                        assertNotNull(comment);
+                return null;
+            });
+
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int base = writer * ROWS_PER_WRITER;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = base; i < base + ROWS_PER_WRITER; i++) {
+                        database.addUser(new User("user" + i, "password", "mail", "2000-01-01", "Tehran"));
+                        database.addComment(new Comment(i, "mail", "user" + i, 1, "text"));
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : writers)
+                future.get(60, TimeUnit.SECONDS);
+            writing.set(false);
+            reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = WRITERS * ROWS_PER_WRITER;
+        assertEquals(total, database.getUsers().size());
+        assertEquals(total, database.getComments().size());
+
+        Set<Integer> ids = new HashSet<>();
+        for (Comment comment : database.getComments())
+            ids.add(comment.getId());
+        assertEquals(total, ids.size());
+        for (int i = 0; i < total; i++) {
+            assertNotNull(database.findUserByUsername("user" + i));
+            assertEquals(i, database.findCommentById(i).getId());
+        }
+    }
+
+    @Test
+    void testConcurrentSignupsWithSameUsernameAcceptOnlyOne() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int writer = 0; writer < WRITERS; writer++)
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return database.addUser(new User("user", "password", "mail", "2000-01-01", "Tehran"));
+                }));
+
+            start.countDown();
+            int accepted = 0;
+            for (Future<Boolean> result : results)
+                if (result.get(60, TimeUnit.SECONDS))
+                    accepted++;
+            assertEquals(1, accepted);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, database.getUsers().size());
+    }
+}
@@ -0,0 +1,44 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionBitmapTest {
+    private List<Integer> collect(List<PositionBitmap> bitmaps, boolean matchAll) {
+        List<Integer> positions = new ArrayList<>();
+        PositionBitmap.forEach(bitmaps, matchAll, positions::add);
+        return positions;
+    }
+
+    @Test
+    void testSetClearAndGetAcrossBlocks() {
+        PositionBitmap bitmap = new PositionBitmap();
+        bitmap.set(3);
+        bitmap.set(4095);
+        bitmap.set(1_000_000);
+        bitmap.clear(4095);
+
+        assertTrue(bitmap.get(3));
+        assertFalse(bitmap.get(4095));
+        assertTrue(bitmap.get(1_000_000));
+        assertFalse(bitmap.get(5_000_000));
+        assertEquals(List.of(3, 1_000_000), collect(List.of(bitmap), true));
+    }
+
+    @Test
+    void testIntersectionAndUnion() {
+        PositionBitmap first = new PositionBitmap();
+        PositionBitmap second = new PositionBitmap();
+        for (int position : new int[]{1, 64, 5000, 9000})
+            first.set(position);
+        for (int position : new int[]{64, 9000, 70000})
+            second.set(position);
+
+        assertEquals(List.of(64, 9000), collect(List.of(first, second), true));
+        assertEquals(List.of(1, 64, 5000, 9000, 70000), collect(List.of(first, second), false));
+    }
+}
@@ -0,0 +1,57 @@
+package database;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable appends per second to a {@link WriteAheadLog} from 16 concurrent writers, with each
+ * append forcing its own record and with group commit sharing fsyncs between writers. Records
+ * are sized like a comment mutation. Run {@link #main} from the test classpath after
+ * {@code mvn test-compile}; the log is written to the system temp directory, so the numbers
+ * depend on the fsync latency of the disk behind it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+    @Param({"false", "true"})
+    private boolean groupCommit;
+
+    private Path path;
+    private WriteAheadLog log;
+    private final byte[] record = new byte[120];
+
+    @Setup
+    public void setUp() throws IOException {
+        path = Files.createTempFile("baloot", ".wal");
+        log = new WriteAheadLog(path, groupCommit);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        log.close();
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        log.append(record);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WriteAheadLogBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
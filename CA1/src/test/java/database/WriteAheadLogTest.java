@@ -0,0 +1,124 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogTest {
+    @TempDir
+    Path folder;
+
+    private static byte[] record(int value) {
+        return ByteBuffer.allocate(4 + value % 50).putInt(value).array();
+    }
+
+    private static List<Integer> replay(Path path) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(path, true)) {
+            log.replay(record -> values.add(ByteBuffer.wrap(record).getInt()));
+        }
+        return values;
+    }
+
+    @Test
+    void testReplaysRecordsInOrder() throws IOException {
+        Path path = folder.resolve("baloot.wal");
+        try (WriteAheadLog log = new WriteAheadLog(path, false)) {
+            for (int i = 0; i < 100; i++)
+                log.append(record(i));
+        }
+
+        List<Integer> values = replay(path);
+
+        assertEquals(100, values.size());
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, values.get(i));
+    }
+
+    @Test
+    void testGroupCommitKeepsEveryConcurrentAppend() throws Exception {
+        Path path = folder.resolve("baloot.wal");
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try (WriteAheadLog log = new WriteAheadLog(path, true)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++)
+                        log.append(record(thread * 1000 + i));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        Set<Integer> values = new HashSet<>(replay(path));
+
+        assertEquals(3200, values.size());
+        assertTrue(values.contains(15199));
+    }
+
+    @Test
+    void testDropsTornTailAndAppendsAfterLastIntactRecord() throws IOException {
+        Path path = folder.resolve("baloot.wal");
+        try (WriteAheadLog log = new WriteAheadLog(path, true)) {
+            log.append(record(1));
+            log.append(record(2));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(path, true)) {
+            log.replay(record -> {
+            });
+            log.append(record(3));
+        }
+
+        assertEquals(List.of(1, 3), replay(path));
+    }
+
+    @Test
+    void testTruncateDropsEveryRecord() throws IOException {
+        Path path = folder.resolve("baloot.wal");
+        try (WriteAheadLog log = new WriteAheadLog(path, true)) {
+            log.append(record(1));
+            log.truncate();
+            log.append(record(2));
+        }
+
+        assertEquals(List.of(2), replay(path));
+        assertTrue(Files.size(path) > 0);
+    }
+
+    @Test
+    void testRefusesEveryAppendAfterAFailedSync() throws IOException {
+        Path path = folder.resolve("baloot.wal");
+        WriteAheadLog log = new WriteAheadLog(path, true);
+        log.append(record(1));
+        log.close();
+
+        assertThrows(ClosedChannelException.class, () -> log.append(record(2)));
+        IOException later = assertThrows(IOException.class, () -> log.append(record(3)));
+        assertInstanceOf(ClosedChannelException.class, later.getCause());
+        assertEquals(List.of(1), replay(path));
+    }
+}
@@ -1,10 +1,15 @@
 package model;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -54,4 +59,77 @@ public class CommentTest {
         assertEquals(2, comment.getLike());
         assertEquals(0, comment.getDislike());
     }
+
+    @Test
+    void testChangingVoteMovesCount() {
+        comment.addUserVote("user1", "like");
+        comment.addUserVote("user1", "dislike");
+        comment.addUserVote("user2", "like");
+        comment.addUserVote("user2", "like");
+
+        assertEquals(1, comment.getLike());
+        assertEquals(1, comment.getDislike());
+        assertEquals(Vote.DISLIKE, comment.getUserVote().get("user1"));
+    }
+
+    @Test
+    void testUnknownVoteWithdrawsPreviousVote() {
+        comment.addUserVote("user1", "like");
+        comment.addUserVote("user1", "meh");
+
+        assertEquals(0, comment.getLike());
+        assertEquals(0, comment.getDislike());
+        assertEquals(Vote.NEUTRAL, comment.getUserVote().get("user1"));
+    }
+
+    @Test
+    void testConcurrentVotesKeepCountsConsistent() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 10_000; i++) {
+            String username = "user" + (i % 1000);
+            String vote = i % 3 == 0 ? "dislike" : "like";
+            executor.execute(() -> comment.addUserVote(username, vote));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        long likes = comment.getUserVote().values().stream().filter(vote -> vote == Vote.LIKE).count();
+        long dislikes = comment.getUserVote().values().stream().filter(vote -> vote == Vote.DISLIKE).count();
+        assertEquals(likes, comment.getLike());
+        assertEquals(dislikes, comment.getDislike());
+        assertEquals(1000, comment.getLike() + comment.getDislike());
+    }
+
+    @Test
+    void testVotesKeepTheirLowercaseWireFormat() throws Exception {
+        comment.addUserVote("user1", "like");
+        comment.addUserVote("user2", "dislike");
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(Map.of("user1", "like", "user2", "dislike"),
+                mapper.convertValue(mapper.valueToTree(comment).get("userVote"), Map.class));
+
+        Comment read = mapper.readValue("{\"userVote\":{\"user1\":\"like\",\"user2\":\"dislike\"}}", Comment.class);
+        assertEquals(Vote.LIKE, read.getUserVote().get("user1"));
+        assertEquals(Vote.DISLIKE, read.getUserVote().get("user2"));
+    }
+
+    @Test
+    void testListenerRunsVoteAfterSeeingIt() {
+        Comment.setMutationListener(new MutationListener() {
+            @Override
+            public void voted(Comment voted, String username, Vote vote, Runnable change) {
+                assertEquals(0, voted.getLike());
+                assertFalse(voted.getUserVote().containsKey(username));
+                change.run();
+            }
+        });
+        try {
+            comment.addUserVote("user1", "like");
+        } finally {
+            Comment.setMutationListener(null);
+        }
+
+        assertEquals(1, comment.getLike());
+    }
 }
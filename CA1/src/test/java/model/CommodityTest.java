@@ -6,8 +6,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CommodityTest {
 
@@ -35,6 +41,38 @@ public class CommodityTest {
         assertEquals(4.0f, commodity.getRating(), 0.001);
     }
 
+    @Test
+    void testReRateReplacesPreviousScore() {
+        commodity.addRate("user1", 4);
+        commodity.addRate("user2", 5);
+        commodity.addRate("user1", 10);
+        assertEquals(6.0f, commodity.getRating(), 0.001);
+        assertEquals(2, commodity.getUserRate().size());
+    }
+
+    @Test
+    void testRatingContinuesFromLoadedUserRate() {
+        commodity.setUserRate(Map.of("user1", 4, "user2", 5));
+        commodity.addRate("user3", 8);
+        assertEquals(5.0f, commodity.getRating(), 0.001);
+    }
+
+    @Test
+    void testConcurrentRatesKeepAverageExact() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 10_000; i++) {
+            String username = "user" + (i % 500);
+            int score = 1 + i % 10;
+            executor.execute(() -> commodity.addRate(username, score));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        int sum = commodity.getUserRate().values().stream().mapToInt(Integer::intValue).sum();
+        float expected = (3.0f + sum) / (commodity.getUserRate().size() + 1);
+        assertEquals(expected, commodity.getRating(), 0.001);
+    }
+
     @ParameterizedTest
     @ValueSource(ints = { 5, 10, 15, 20, -10, -5, -1 })
     void testUpdateInStock(int amount) throws NotInStock {
@@ -0,0 +1,89 @@
+package service;
+
+import database.Database;
+import model.Commodity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BalootTest {
+    private static final String[] CATEGORIES = {"phone", "tech", "home", "toy", "book", "food"};
+
+    private Baloot baloot;
+    private ArrayList<Commodity> commodities;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        baloot = Baloot.getInstance();
+        random = new Random(7);
+        commodities = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName("commodity" + i);
+            commodity.setCategories(randomCategories());
+            commodity.setRating(random.nextInt(100) / 10f);
+            commodities.add(commodity);
+        }
+        Database.getInstance().setCommodities(commodities);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.getInstance().setCommodities(new ArrayList<>());
+    }
+
+    private ArrayList<String> randomCategories() {
+        ArrayList<String> categories = new ArrayList<>();
+        for (String category : CATEGORIES)
+            if (random.nextInt(4) == 0)
+                categories.add(category);
+        return categories;
+    }
+
+    private List<Float> scanSuggestionScores(Commodity commodity) {
+        List<Float> scores = new ArrayList<>();
+        for (Commodity candidate : commodities)
+            if (candidate != commodity)
+                scores.add(baloot.getSuggestionScore(commodity, candidate));
+        scores.sort(Comparator.reverseOrder());
+        return scores.subList(0, Math.min(4, scores.size()));
+    }
+
+    private void assertSuggestionsMatchScan() {
+        for (Commodity commodity : commodities) {
+            ArrayList<Commodity> suggestions = baloot.suggestSimilarCommodities(commodity);
+
+            assertTrue(suggestions.stream().noneMatch(suggestion -> suggestion == commodity));
+            assertEquals(scanSuggestionScores(commodity),
+                    suggestions.stream().map(suggestion -> baloot.getSuggestionScore(commodity, suggestion)).toList());
+        }
+    }
+
+    @Test
+    void testSuggestionsMatchScoringFormula() {
+        assertSuggestionsMatchScan();
+    }
+
+    @Test
+    void testSuggestionsFollowRatingAndCategoryChanges() {
+        for (int i = 0; i < 200; i++) {
+            Commodity commodity = commodities.get(random.nextInt(commodities.size()));
+            if (random.nextBoolean())
+                commodity.addRate("user" + random.nextInt(20), 1 + random.nextInt(10));
+            else
+                commodity.setCategories(randomCategories());
+        }
+
+        assertSuggestionsMatchScan();
+    }
+}
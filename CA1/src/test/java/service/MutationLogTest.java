@@ -0,0 +1,171 @@
+package service;
+
+import database.Database;
+import exceptions.*;
+import model.Comment;
+import model.Commodity;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MutationLogTest {
+    private Baloot baloot;
+    private Database database;
+
+    @TempDir
+    Path folder;
+
+    @BeforeEach
+    void setUp() {
+        baloot = Baloot.getInstance();
+        database = Database.getInstance();
+        loadBaseData();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        baloot.disableMutationLog();
+        database.setUsers(new ArrayList<>());
+        database.setCommodities(new ArrayList<>());
+        database.setComments(new ArrayList<>());
+    }
+
+    // Stands in for what DataParser loads from the data files on every start.
+    private void loadBaseData() {
+        User ali = new User("ali", "123", "ali@gmail.com", "2000-01-01", "Tehran");
+        ali.setCredit(1000);
+        database.setUsers(new ArrayList<>(List.of(ali)));
+
+        Commodity phone = new Commodity("1", "iPhone", "1", 100, new ArrayList<>(List.of("phone")), 8, 10);
+        Commodity laptop = new Commodity("2", "MacBook", "1", 300, new ArrayList<>(List.of("tech")), 9, 10);
+        database.setCommodities(new ArrayList<>(List.of(phone, laptop)));
+
+        Comment comment = new Comment(0, "ali@gmail.com", "ali", 1, "good");
+        database.setComments(new ArrayList<>(List.of(comment)));
+    }
+
+    @Test
+    void testReplaysMutationsOverBaseData() throws Exception {
+        Path path = folder.resolve("baloot.wal");
+        baloot.enableMutationLog(path);
+
+        baloot.addUser(new User("amin", "456", "amin@gmail.com", "2001-01-01", "Shiraz"));
+        baloot.getUserById("amin").addCredit(500);
+        baloot.getCommodityById("1").addRate("amin", 4);
+        baloot.getCommentById(0).addUserVote("amin", "dislike");
+        Comment comment = new Comment(baloot.generateCommentId(), "amin@gmail.com", "amin", 2, "pricey");
+        baloot.addComment(comment);
+        baloot.addCommodityToUserBuyList("amin", "1");
+        baloot.addCommodityToUserBuyList("amin", "1");
+        baloot.addCommodityToUserBuyList("amin", "2");
+        baloot.removeCommodityFromUserBuyList("amin", "2");
+        baloot.withdrawPayableAmount(baloot.getUserById("amin"));
+        baloot.addCommodityToUserBuyList("amin", "2");
+
+        baloot.disableMutationLog();
+        loadBaseData();
+        baloot.enableMutationLog(path);
+
+        User amin = baloot.getUserById("amin");
+        assertEquals("Shiraz", amin.getAddress());
+        assertEquals(300f, amin.getCredit());
+        assertEquals(Map.of("1", 2), amin.getPurchasedList());
+        assertEquals(Map.of("2", 1), amin.getBuyList());
+        assertEquals(8, baloot.getCommodityById("1").getInStock());
+        assertEquals(6f, baloot.getCommodityById("1").getRating());
+        assertEquals(1, baloot.getCommentById(0).getDislike());
+        assertEquals("pricey", baloot.getCommentById(1).getText());
+        assertEquals(comment.getDate(), baloot.getCommentById(1).getDate());
+        assertEquals(2, baloot.generateCommentId());
+    }
+
+    @Test
+    void testLogsMutationsMadeAfterReplay() throws Exception {
+        Path path = folder.resolve("baloot.wal");
+        baloot.enableMutationLog(path);
+        baloot.getUserById("ali").addCredit(10);
+        baloot.disableMutationLog();
+
+        loadBaseData();
+        baloot.enableMutationLog(path);
+        baloot.getUserById("ali").addCredit(20);
+        baloot.disableMutationLog();
+
+        loadBaseData();
+        baloot.enableMutationLog(path);
+        assertEquals(1030f, baloot.getUserById("ali").getCredit());
+    }
+
+    @Test
+    void testSkipsMutationsThatNoLongerApply() throws Exception {
+        Path path = folder.resolve("baloot.wal");
+        baloot.enableMutationLog(path);
+        baloot.getCommodityById("2").addRate("ali", 1);
+        baloot.getUserById("ali").addCredit(5);
+        baloot.disableMutationLog();
+
+        loadBaseData();
+        database.setCommodities(new ArrayList<>());
+        baloot.enableMutationLog(path);
+
+        assertThrows(NotExistentCommodity.class, () -> baloot.getCommodityById("2"));
+        assertEquals(1005f, baloot.getUserById("ali").getCredit());
+    }
+
+    @Test
+    void testMutationsWaitForCheckpointAndStayLoggedAfterIt() throws Exception {
+        Path path = folder.resolve("baloot.wal");
+        User ali = baloot.getUserById("ali");
+        AtomicBoolean applied = new AtomicBoolean();
+        Thread mutation;
+        try (MutationLog log = new MutationLog(path)) {
+            log.creditAdded(ali, 10, () -> {
+            });
+            mutation = new Thread(() -> log.creditAdded(ali, 5, () -> applied.set(true)));
+            log.checkpoint(() -> {
+                mutation.start();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+                assertFalse(applied.get());
+            });
+            mutation.join();
+        }
+
+        assertTrue(applied.get());
+        baloot.enableMutationLog(path);
+        assertEquals(1005f, ali.getCredit());
+    }
+
+    @Test
+    void testRequestsOneCheckpointEachTimeLogOutgrowsSize() throws Exception {
+        User ali = baloot.getUserById("ali");
+        AtomicInteger requests = new AtomicInteger();
+        try (MutationLog log = new MutationLog(folder.resolve("baloot.wal"))) {
+            log.requestCheckpointPast(0, requests::incrementAndGet);
+            log.creditAdded(ali, 10, () -> {
+            });
+            log.creditAdded(ali, 10, () -> {
+            });
+            assertEquals(1, requests.get());
+
+            log.checkpoint(() -> {
+            });
+            log.creditAdded(ali, 10, () -> {
+            });
+            assertEquals(2, requests.get());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares picking the four best of n scores with {@link TopKSelector} against the boxed
+ * map-and-sort approach suggestions used before. Run {@link #main} from the test classpath
+ * after {@code mvn test-compile}; the GC profiler reports allocation per call as
+ * gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKSelectorBenchmark {
+    private static final int K = 4;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private float[] scores;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        scores = new float[size];
+        for (int i = 0; i < size; i++)
+            scores[i] = random.nextInt(2) * 11 + random.nextFloat() * 10;
+    }
+
+    @Benchmark
+    public void topKSelector(Blackhole blackhole) {
+        TopKSelector selector = new TopKSelector(K);
+        for (int i = 0; i < scores.length; i++)
+            selector.offer(scores[i], i);
+        blackhole.consume(selector.drainDescending());
+    }
+
+    @Benchmark
+    public void boxedSort(Blackhole blackhole) {
+        Hashtable<Integer, Float> scoreByItem = new Hashtable<>();
+        for (int i = 0; i < scores.length; i++)
+            scoreByItem.put(i, scores[i]);
+
+        List<Map.Entry<Integer, Float>> list = new ArrayList<>(scoreByItem.entrySet());
+        list.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        blackhole.consume(list.subList(0, K));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TopKSelectorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,48 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TopKSelectorTest {
+    @Test
+    void testKeepsHighestScoresInDescendingOrder() {
+        Random random = new Random(3);
+        float[] scores = new float[1000];
+        TopKSelector selector = new TopKSelector(10);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat() * 100;
+            selector.offer(scores[i], i);
+        }
+
+        int[] expected = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparing((Integer i) -> scores[i]).reversed())
+                .limit(10)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertArrayEquals(expected, selector.drainDescending());
+        assertEquals(0, selector.size());
+    }
+
+    @Test
+    void testFewerItemsThanK() {
+        TopKSelector selector = new TopKSelector(4);
+        selector.offer(1.5f, 7);
+        selector.offer(9f, 3);
+
+        assertArrayEquals(new int[]{3, 7}, selector.drainDescending());
+    }
+
+    @Test
+    void testZeroCapacityKeepsNothing() {
+        TopKSelector selector = new TopKSelector(0);
+        selector.offer(1f, 1);
+
+        assertEquals(0, selector.drainDescending().length);
+    }
+}
@@ -0,0 +1,84 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Running sum and count over the retained orders of one customer.
+class CustomerWindow {
+    // sequence numbers and quantities of the orders in the window; null when orders are never evicted
+    private final LongRing sequences;
+    private final IntRing quantities;
+    private int sum;
+    private int count;
+
+    CustomerWindow(boolean evicting) {
+        sequences = evicting ? new LongRing() : null;
+        quantities = evicting ? new IntRing() : null;
+    }
+
+    void add(long sequence, int quantity, int limit) {
+        sum += quantity;
+        count++;
+        if (sequences != null) {
+            sequences.addLast(sequence);
+            quantities.addLast(quantity);
+            if (limit > 0 && count > limit) {
+                removeFirst();
+            }
+        }
+    }
+
+    // Drops the order with the given sequence number if it is the oldest one in the window.
+    boolean evictIfFirst(long sequence) {
+        if (count == 0 || sequences.first() != sequence) {
+            return false;
+        }
+
+        removeFirst();
+        return true;
+    }
+
+    private void removeFirst() {
+        sum -= quantities.first();
+        count--;
+        sequences.removeFirst();
+        quantities.removeFirst();
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int getAverage() {
+        if (count == 0) {
+            return 0;
+        }
+
+        return sum / count;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(sum);
+        out.writeInt(count);
+        if (sequences != null) {
+            for (int i = 0; i < count; i++) {
+                out.writeLong(sequences.get(i));
+                out.writeInt(quantities.get(i));
+            }
+        }
+    }
+
+    static CustomerWindow readFrom(DataInput in, boolean evicting) throws IOException {
+        var window = new CustomerWindow(evicting);
+        window.sum = in.readInt();
+        window.count = in.readInt();
+        if (evicting) {
+            for (int i = 0; i < window.count; i++) {
+                window.sequences.addLast(in.readLong());
+                window.quantities.addLast(in.readInt());
+            }
+        }
+        return window;
+    }
+}
@@ -0,0 +1,142 @@
+package domain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Engine whose accepted orders are journaled to a directory, so it can be rebuilt after a
+// restart. Every snapshotInterval accepted orders the aggregates are written to a snapshot;
+// opening the directory loads the latest snapshot and replays only the journal records that
+// came after it, or the whole journal when there is no usable snapshot.
+public class DurableEngine implements AutoCloseable {
+    static final String JOURNAL_FILE = "orders.journal";
+    static final String SNAPSHOT_FILE = "engine.snapshot";
+    private static final long SNAPSHOT_MAGIC = 0x454e47534e415031L;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Path directory;
+    private final RetentionPolicy retention;
+    private final int snapshotInterval;
+    private final OrderJournal journal;
+    private final Engine engine;
+    private long snapshotSequence;
+
+    private DurableEngine(Path directory, RetentionPolicy retention, int snapshotInterval,
+                          OrderJournal journal, Engine engine, long snapshotSequence) {
+        this.directory = directory;
+        this.retention = retention;
+        this.snapshotInterval = snapshotInterval;
+        this.journal = journal;
+        this.engine = engine;
+        this.snapshotSequence = snapshotSequence;
+    }
+
+    public static DurableEngine open(Path directory, RetentionPolicy retention, int snapshotInterval) throws IOException {
+        Files.createDirectories(directory);
+        var journal = OrderJournal.open(directory.resolve(JOURNAL_FILE));
+
+        var engine = readSnapshot(directory.resolve(SNAPSHOT_FILE), retention, journal);
+        if (engine == null) {
+            engine = new Engine(retention);
+        }
+        var snapshotSequence = engine.getSequence();
+
+        for (long s = snapshotSequence; s < journal.size(); s++) {
+            engine.replay(journal.getId(s), journal.getCustomer(s), journal.getPrice(s), journal.getQuantity(s),
+                    journal.getArrivalTime(s));
+        }
+        engine.journal = journal;
+
+        return new DurableEngine(directory, retention, snapshotInterval, journal, engine, snapshotSequence);
+    }
+
+    public static DurableEngine open(Path directory) throws IOException {
+        return open(directory, RetentionPolicy.UNBOUNDED, 1_000_000);
+    }
+
+    private static Engine readSnapshot(Path path, RetentionPolicy retention, OrderJournal journal) {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readLong() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION
+                    || in.readInt() != retention.getMaxOrders()
+                    || in.readLong() != maxAgeMillis(retention)
+                    || in.readInt() != retention.getCustomerWindow()
+                    || in.readInt() != retention.getPriceWindow()) {
+                return null;
+            }
+
+            var engine = new Engine(retention);
+            engine.readState(in, journal);
+            return engine;
+        } catch (IOException e) {
+            // a missing or unreadable snapshot only costs a full replay of the journal
+            return null;
+        }
+    }
+
+    private static long maxAgeMillis(RetentionPolicy retention) {
+        return retention.getMaxAge() == null ? -1 : retention.getMaxAge().toMillis();
+    }
+
+    public int addOrderAndGetFraudulentQuantity(Order order) {
+        var quantity = engine.addOrderAndGetFraudulentQuantity(order);
+        snapshotIfDue();
+        return quantity;
+    }
+
+    public int[] addOrdersAndGetFraudulentQuantities(Order[] orders) {
+        var quantities = engine.addOrdersAndGetFraudulentQuantities(orders);
+        snapshotIfDue();
+        return quantities;
+    }
+
+    private void snapshotIfDue() {
+        if (engine.getSequence() - snapshotSequence < snapshotInterval) {
+            return;
+        }
+
+        try {
+            snapshot();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Flushes the journal, then atomically replaces the snapshot with the current aggregates.
+    public void snapshot() throws IOException {
+        journal.force();
+
+        var path = directory.resolve(SNAPSHOT_FILE);
+        var temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (var file = new FileOutputStream(temporary.toFile());
+             var out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(retention.getMaxOrders());
+            out.writeLong(maxAgeMillis(retention));
+            out.writeInt(retention.getCustomerWindow());
+            out.writeInt(retention.getPriceWindow());
+            engine.writeState(out);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        snapshotSequence = engine.getSequence();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            snapshot();
+        } finally {
+            journal.close();
+        }
+    }
+}
@@ -1,83 +1,394 @@
 package domain;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 public class Engine {
+    private static final int MIN_COMPACTED_ORDERS = 1024;
 
-    ArrayList<Order> orderHistory;
+    OrderLog orderHistory;
+
+    private final RetentionPolicy retention;
+    // which aggregates are kept; only ShardedEngine splits them between engines
+    private final boolean keepsCustomers;
+    private final boolean keepsPrices;
+    private final boolean customersEvict;
+    private final boolean pricesEvict;
+    private final IntHashSet orderIds = new IntHashSet();
+    private final Map<Integer, CustomerWindow> customerWindows = new HashMap<>();
+    private final Map<Integer, PriceWindow> priceWindows = new HashMap<>();
+    // arrival times of the retained orders; null without a maximum age
+    private final LongRing arrivalTimes;
+
+    // orderHistory[retainedFrom, aggregatedOrders) is what the aggregates currently cover
+    private int retainedFrom;
+    private int aggregatedOrders;
+    // orders dropped from the front of orderHistory; an order's sequence number is compactedOrders + its index
+    private long compactedOrders;
+
+    // accepted orders are appended here before they enter the history, when set
+    OrderJournal journal;
 
     public Engine() {
-        orderHistory = new ArrayList<>();
+        this(RetentionPolicy.UNBOUNDED);
     }
 
-    int getAverageOrderQuantityByCustomer(int customer) {
-        var sum = 0;
-        var count = 0;
+    public Engine(RetentionPolicy retention) {
+        this(retention, true, true);
+    }
+
+    private Engine(RetentionPolicy retention, boolean keepsCustomers, boolean keepsPrices) {
+        orderHistory = new OrderLog();
+        this.retention = retention;
+        this.keepsCustomers = keepsCustomers;
+        this.keepsPrices = keepsPrices;
+        customersEvict = retention.evictsHistory() || retention.getCustomerWindow() > 0;
+        pricesEvict = retention.evictsHistory() || retention.getPriceWindow() > 0;
+        arrivalTimes = retention.getMaxAge() != null ? new LongRing() : null;
+    }
+
+    // An engine keeping only the customer averages of the orders it is given; see
+    // addOrderAndGetCustomerQuantity.
+    static Engine forCustomers(RetentionPolicy retention) {
+        return new Engine(retention, true, false);
+    }
+
+    // An engine keeping only the ids and price patterns of every order; see
+    // addOrderAndGetPatternQuantity.
+    static Engine forPrices(RetentionPolicy retention) {
+        return new Engine(retention, false, true);
+    }
+
+    private long now() {
+        return arrivalTimes != null ? retention.getClock().millis() : 0;
+    }
+
+    // Folds orders appended to orderHistory since the last call into the aggregates and
+    // forgets the ones the retention policy no longer keeps.
+    private void aggregateNewOrders(long now) {
+        for (; aggregatedOrders < orderHistory.size(); aggregatedOrders++) {
+            var sequence = compactedOrders + aggregatedOrders;
+            var customer = orderHistory.getCustomer(aggregatedOrders);
+            var price = orderHistory.getPrice(aggregatedOrders);
+            var quantity = orderHistory.getQuantity(aggregatedOrders);
+            if (keepsCustomers) {
+                customerWindows.computeIfAbsent(customer, c -> new CustomerWindow(customersEvict))
+                        .add(sequence, quantity, retention.getCustomerWindow());
+            }
+            if (keepsPrices) {
+                orderIds.add(orderHistory.getId(aggregatedOrders));
+                priceWindows.computeIfAbsent(price, p -> new PriceWindow(pricesEvict))
+                        .add(sequence, quantity, retention.getPriceWindow());
+            }
+            if (arrivalTimes != null) {
+                arrivalTimes.addLast(now);
+            }
 
-        for (Order oldOrder : orderHistory) {
-            if (oldOrder.customer == customer) {
-                sum += oldOrder.quantity;
-                count++;
+            if (retention.getMaxOrders() > 0 && aggregatedOrders + 1 - retainedFrom > retention.getMaxOrders()) {
+                evictOldestOrder();
             }
         }
 
-        if (orderHistory.size() == 0) {
+        if (arrivalTimes != null) {
+            var oldestKept = now - retention.getMaxAge().toMillis();
+            while (retainedFrom < aggregatedOrders && arrivalTimes.first() < oldestKept) {
+                evictOldestOrder();
+            }
+        }
+
+        if (retainedFrom >= MIN_COMPACTED_ORDERS && retainedFrom * 2 >= orderHistory.size()) {
+            orderHistory.removeFirst(retainedFrom);
+            compactedOrders += retainedFrom;
+            aggregatedOrders -= retainedFrom;
+            retainedFrom = 0;
+        }
+    }
+
+    private void evictOldestOrder() {
+        var sequence = compactedOrders + retainedFrom;
+        var customer = orderHistory.getCustomer(retainedFrom);
+        var price = orderHistory.getPrice(retainedFrom);
+        var id = orderHistory.getId(retainedFrom);
+        retainedFrom++;
+
+        if (keepsCustomers) {
+            var customerWindow = customerWindows.get(customer);
+            if (customerWindow.evictIfFirst(sequence) && customerWindow.isEmpty()) {
+                customerWindows.remove(customer);
+            }
+        }
+        if (keepsPrices) {
+            orderIds.remove(id);
+            var priceWindow = priceWindows.get(price);
+            if (priceWindow.evictIfFirst(sequence) && priceWindow.isEmpty()) {
+                priceWindows.remove(price);
+            }
+        }
+        if (arrivalTimes != null) {
+            arrivalTimes.removeFirst();
+        }
+    }
+
+    private int getPatternDiff(int price) {
+        var window = priceWindows.get(price);
+        if (window == null) {
             return 0;
         }
 
-        return sum / count;
+        // the oldest retained order seeds the pattern of every price level
+        return window.getDiff(compactedOrders + retainedFrom, orderHistory.getQuantity(retainedFrom));
+    }
+
+    private static int getFraudulentQuantity(int quantity, int averageOrderQuantity) {
+        if (quantity > averageOrderQuantity) {
+            return quantity - averageOrderQuantity;
+        }
+
+        return 0;
+    }
+
+    private int getCustomerFraudulentQuantity(Order order, CustomerWindow window) {
+        return getFraudulentQuantity(order.quantity, window == null ? 0 : window.getAverage());
+    }
+
+    int getAverageOrderQuantityByCustomer(int customer) {
+        aggregateNewOrders(now());
+
+        var window = customerWindows.get(customer);
+        if (window == null) {
+            return 0;
+        }
+
+        return window.getAverage();
     }
 
     int getQuantityPatternByPrice(int price) {
-        if (orderHistory.size() == 0) {
+        aggregateNewOrders(now());
+        return getPatternDiff(price);
+    }
+
+    int getCustomerFraudulentQuantity(Order order) {
+        return getFraudulentQuantity(order.quantity, getAverageOrderQuantityByCustomer(order.customer));
+    }
+
+    public int addOrderAndGetFraudulentQuantity(Order order) {
+        var now = now();
+        aggregateNewOrders(now);
+        if (orderIds.contains(order.id)) {
             return 0;
         }
 
-        var diff = 0;
-        var previous = orderHistory.get(0);
+        var quantity = getCustomerFraudulentQuantity(order, customerWindows.get(order.customer));
+        if (quantity == 0) {
+            quantity = getPatternDiff(order.price);
+        }
 
-        for (Order currentOrder : orderHistory) {
-            if (currentOrder.id == previous.id) {
-                continue;
+        appendToJournal(order, now);
+        orderHistory.add(order);
+        aggregateNewOrders(now);
+        return quantity;
+    }
+
+    // Scores an order by the average rule alone and records it, for an engine keeping customers
+    // only. Its orders have been accepted by a forPrices engine, which also scores the pattern.
+    int addOrderAndGetCustomerQuantity(Order order) {
+        var now = now();
+        aggregateNewOrders(now);
+        var quantity = getCustomerFraudulentQuantity(order, customerWindows.get(order.customer));
+
+        orderHistory.add(order);
+        aggregateNewOrders(now);
+        return quantity;
+    }
+
+    // Whether an order with this id is retained, for an engine keeping prices only.
+    boolean hasOrder(int id) {
+        aggregateNewOrders(now());
+        return orderIds.contains(id);
+    }
+
+    // Records an order hasOrder did not find and returns the price pattern it meets, for an
+    // engine keeping prices only.
+    int addOrderAndGetPatternQuantity(Order order) {
+        var now = now();
+        aggregateNewOrders(now);
+        var quantity = getPatternDiff(order.price);
+        appendToJournal(order, now);
+        orderHistory.add(order);
+        aggregateNewOrders(now);
+        return quantity;
+    }
+
+    // Same result as calling addOrderAndGetFraudulentQuantity for each order in turn. The
+    // average rule only depends on a customer's own orders, so customers are scored in
+    // parallel on the common fork-join pool; duplicate ids and the price pattern stay
+    // sequential. Orders leaving the history affect every customer at once, so a policy with
+    // maxOrders or maxAge scores the batch one order at a time.
+    public int[] addOrdersAndGetFraudulentQuantities(Order[] orders) {
+        var quantities = new int[orders.length];
+        if (retention.evictsHistory()) {
+            for (int i = 0; i < orders.length; i++) {
+                quantities[i] = addOrderAndGetFraudulentQuantity(orders[i]);
             }
+            return quantities;
+        }
+
+        var now = now();
+        aggregateNewOrders(now);
+        var firstSequence = compactedOrders + aggregatedOrders;
+        var sequences = new long[orders.length];
 
-            if (currentOrder.price != price) {
+        var accepted = new boolean[orders.length];
+        var groupOf = new int[orders.length];
+        var groups = new HashMap<Integer, Integer>();
+        var groupWindows = new ArrayList<CustomerWindow>();
+        var acceptedCount = 0;
+        for (int i = 0; i < orders.length; i++) {
+            if (!orderIds.add(orders[i].id)) {
                 continue;
             }
+            accepted[i] = true;
+            sequences[i] = firstSequence + acceptedCount++;
+            groupOf[i] = groups.computeIfAbsent(orders[i].customer, customer -> {
+                groupWindows.add(customerWindows.computeIfAbsent(customer, c -> new CustomerWindow(customersEvict)));
+                return groupWindows.size() - 1;
+            });
+        }
 
-            if (diff == 0) {
-                diff = currentOrder.quantity - previous.quantity;
-                previous = currentOrder;
-            } else if (diff != currentOrder.quantity - previous.quantity) {
-                return 0;
+        // members of group g are groupMembers[groupStart[g] .. groupStart[g + 1]), in batch order
+        var groupCount = groupWindows.size();
+        var groupStart = new int[groupCount + 1];
+        for (int i = 0; i < orders.length; i++) {
+            if (accepted[i]) {
+                groupStart[groupOf[i] + 1]++;
+            }
+        }
+        for (int g = 0; g < groupCount; g++) {
+            groupStart[g + 1] += groupStart[g];
+        }
+        var groupMembers = new int[groupStart[groupCount]];
+        var next = groupStart.clone();
+        for (int i = 0; i < orders.length; i++) {
+            if (accepted[i]) {
+                groupMembers[next[groupOf[i]]++] = i;
+            }
+        }
+
+        IntStream.range(0, groupCount).parallel().forEach(g -> {
+            var window = groupWindows.get(g);
+            for (int m = groupStart[g]; m < groupStart[g + 1]; m++) {
+                var order = orders[groupMembers[m]];
+                quantities[groupMembers[m]] = getCustomerFraudulentQuantity(order, window);
+                window.add(sequences[groupMembers[m]], order.quantity, retention.getCustomerWindow());
+            }
+        });
+
+        for (int i = 0; i < orders.length; i++) {
+            if (!accepted[i]) {
+                continue;
+            }
+            if (quantities[i] == 0) {
+                quantities[i] = getPatternDiff(orders[i].price);
             }
+            priceWindows.computeIfAbsent(orders[i].price, price -> new PriceWindow(pricesEvict))
+                    .add(sequences[i], orders[i].quantity, retention.getPriceWindow());
+            appendToJournal(orders[i], now);
+            orderHistory.add(orders[i]);
+            aggregatedOrders++;
         }
 
-        return diff;
+        return quantities;
     }
 
-    int getCustomerFraudulentQuantity(Order order) {
+    private void appendToJournal(Order order, long now) {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.append(order.id, order.customer, order.price, order.quantity, now);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Number of orders accepted so far, which is also the sequence number of the next one.
+    long getSequence() {
+        return compactedOrders + aggregatedOrders;
+    }
 
-        var averageOrderQuantity = getAverageOrderQuantityByCustomer(order.customer);
+    // Re-applies an order read back from the journal without scoring it.
+    void replay(int id, int customer, int price, int quantity, long arrivalTime) {
+        aggregateNewOrders(arrivalTime);
+        orderHistory.add(id, customer, price, quantity);
+        aggregateNewOrders(arrivalTime);
+    }
+
+    // Writes the aggregates; the retained orders themselves are reloaded from the journal.
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(compactedOrders + aggregatedOrders);
+        out.writeLong(compactedOrders + retainedFrom);
 
-        if (order.quantity > averageOrderQuantity) {
-            return order.quantity - averageOrderQuantity;
+        orderIds.writeTo(out);
+
+        out.writeInt(customerWindows.size());
+        for (var entry : customerWindows.entrySet()) {
+            out.writeInt(entry.getKey());
+            entry.getValue().writeTo(out);
         }
 
-        return 0;
+        out.writeInt(priceWindows.size());
+        for (var entry : priceWindows.entrySet()) {
+            out.writeInt(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+
+        if (arrivalTimes != null) {
+            out.writeInt(arrivalTimes.size());
+            for (int i = 0; i < arrivalTimes.size(); i++) {
+                out.writeLong(arrivalTimes.get(i));
+            }
+        }
     }
 
-    public int addOrderAndGetFraudulentQuantity(Order order) {
-        if (orderHistory.contains(order)) {
-            return 0;
+    // Restores what writeState wrote into a newly created engine.
+    void readState(DataInput in, OrderJournal journal) throws IOException {
+        var sequence = in.readLong();
+        var retainedSequence = in.readLong();
+        if (sequence > journal.size() || retainedSequence > sequence) {
+            throw new IOException("snapshot does not match the journal");
         }
 
-        var quantity = getCustomerFraudulentQuantity(order);
-        if (quantity == 0) {
-            quantity = getQuantityPatternByPrice(order.price);
+        orderIds.readFrom(in);
+
+        var customers = in.readInt();
+        for (int i = 0; i < customers; i++) {
+            customerWindows.put(in.readInt(), CustomerWindow.readFrom(in, customersEvict));
         }
 
-        orderHistory.add(order);
-        return quantity;
+        var prices = in.readInt();
+        for (int i = 0; i < prices; i++) {
+            priceWindows.put(in.readInt(), PriceWindow.readFrom(in, pricesEvict));
+        }
+
+        if (arrivalTimes != null) {
+            var times = in.readInt();
+            for (int i = 0; i < times; i++) {
+                arrivalTimes.addLast(in.readLong());
+            }
+        }
+
+        for (long s = retainedSequence; s < sequence; s++) {
+            orderHistory.add(journal.getId(s), journal.getCustomer(s), journal.getPrice(s), journal.getQuantity(s));
+        }
+        compactedOrders = retainedSequence;
+        retainedFrom = 0;
+        aggregatedOrders = orderHistory.size();
     }
 }
@@ -0,0 +1,149 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Set of ints in a single open-addressing table with linear probing, so membership costs a
+// few array reads and no boxing. Removal shifts the rest of the probe run back instead of
+// leaving tombstones, which keeps lookups short under steady add/remove churn.
+class IntHashSet {
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    // zero marks an empty slot, so whether the set contains zero is kept on the side
+    private int[] table;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    IntHashSet() {
+        table = new int[MIN_CAPACITY];
+        mask = MIN_CAPACITY - 1;
+    }
+
+    private int slotOf(int value) {
+        var hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+
+        for (int slot = slotOf(value); table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (table[slot] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean add(int value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        var slot = slotOf(value);
+        for (; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (table[slot] == value) {
+                return false;
+            }
+        }
+
+        table[slot] = value;
+        size++;
+        if (size > table.length / 4 * 3) {
+            grow();
+        }
+        return true;
+    }
+
+    boolean remove(int value) {
+        if (value == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+
+        var slot = slotOf(value);
+        for (; table[slot] != value; slot = (slot + 1) & mask) {
+            if (table[slot] == EMPTY) {
+                return false;
+            }
+        }
+
+        // move later entries of the probe run into the gap unless that would put them before their home slot
+        var gap = slot;
+        for (int next = (gap + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+            var home = slotOf(table[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+        }
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    private void grow() {
+        resize(table.length * 2);
+    }
+
+    private void resize(int capacity) {
+        var old = table;
+        table = new int[capacity];
+        mask = capacity - 1;
+        for (int value : old) {
+            if (value != EMPTY) {
+                var slot = slotOf(value);
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        if (containsZero) {
+            out.writeInt(EMPTY);
+        }
+        for (int value : table) {
+            if (value != EMPTY) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    // Adds the values written by writeTo, sizing the table once up front.
+    void readFrom(DataInput in) throws IOException {
+        var count = in.readInt();
+        var capacity = table.length;
+        while (capacity / 4 * 3 < size + count) {
+            capacity <<= 1;
+        }
+        if (capacity != table.length) {
+            resize(capacity);
+        }
+
+        for (int i = 0; i < count; i++) {
+            add(in.readInt());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package domain;
+
+// Growable circular buffer of ints, appended at the back and consumed from the front.
+class IntRing {
+    private int[] values = new int[4];
+    private int head;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return values[(head + index) & (values.length - 1)];
+    }
+
+    void set(int index, int value) {
+        values[(head + index) & (values.length - 1)] = value;
+    }
+
+    int first() {
+        return get(0);
+    }
+
+    int last() {
+        return get(size - 1);
+    }
+
+    void addLast(int value) {
+        if (size == values.length) {
+            var grown = new int[values.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = get(i);
+            }
+            values = grown;
+            head = 0;
+        }
+        values[(head + size) & (values.length - 1)] = value;
+        size++;
+    }
+
+    void removeFirst() {
+        head = (head + 1) & (values.length - 1);
+        size--;
+    }
+}
@@ -0,0 +1,38 @@
+package domain;
+
+// Growable circular buffer of longs, appended at the back and consumed from the front.
+class LongRing {
+    private long[] values = new long[4];
+    private int head;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return values[(head + index) & (values.length - 1)];
+    }
+
+    long first() {
+        return get(0);
+    }
+
+    void addLast(long value) {
+        if (size == values.length) {
+            var grown = new long[values.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = get(i);
+            }
+            values = grown;
+            head = 0;
+        }
+        values[(head + size) & (values.length - 1)] = value;
+        size++;
+    }
+
+    void removeFirst() {
+        head = (head + 1) & (values.length - 1);
+        size--;
+    }
+}
@@ -22,4 +22,9 @@ public class Order {
         }
         return false;
     }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
 }
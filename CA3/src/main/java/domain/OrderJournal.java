@@ -0,0 +1,129 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Objects;
+
+// Append-only file of accepted orders, memory-mapped in fixed-size chunks. A record is the
+// order's id, customer, price and quantity followed by its arrival time. The header keeps the
+// number of complete records and is only advanced after a record is written, so an append
+// torn by a crash is not counted when the journal is reopened. Written records survive a
+// process crash as soon as append returns; force() also makes them survive a power loss.
+public class OrderJournal implements AutoCloseable {
+    private static final long MAGIC = 0x4f52444a524e4c31L;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int VERSION_OFFSET = 8;
+    private static final int RECORD_BYTES_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+    static final int RECORD_BYTES = 24;
+    private static final int CHUNK_RECORDS = 1 << 20;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final ArrayList<MappedByteBuffer> chunks = new ArrayList<>();
+    private int forcedChunks;
+    private long size;
+
+    private OrderJournal(FileChannel channel) throws IOException {
+        this.channel = channel;
+        var created = channel.size() == 0;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+
+        if (created) {
+            header.putLong(0, MAGIC);
+            header.putInt(VERSION_OFFSET, VERSION);
+            header.putInt(RECORD_BYTES_OFFSET, RECORD_BYTES);
+            header.putLong(SIZE_OFFSET, 0);
+        } else if (header.getLong(0) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION
+                || header.getInt(RECORD_BYTES_OFFSET) != RECORD_BYTES) {
+            throw new IOException("not an order journal");
+        }
+
+        size = header.getLong(SIZE_OFFSET);
+    }
+
+    public static OrderJournal open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new OrderJournal(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer chunkOf(long index) throws IOException {
+        var chunk = (int) (index / CHUNK_RECORDS);
+        while (chunks.size() <= chunk) {
+            var position = HEADER_BYTES + (long) chunks.size() * CHUNK_RECORDS * RECORD_BYTES;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) CHUNK_RECORDS * RECORD_BYTES));
+        }
+        return chunks.get(chunk);
+    }
+
+    private static int offsetOf(long index) {
+        return (int) (index % CHUNK_RECORDS) * RECORD_BYTES;
+    }
+
+    public void append(int id, int customer, int price, int quantity, long arrivalTime) throws IOException {
+        var chunk = chunkOf(size);
+        var offset = offsetOf(size);
+        chunk.putInt(offset, id);
+        chunk.putInt(offset + 4, customer);
+        chunk.putInt(offset + 8, price);
+        chunk.putInt(offset + 12, quantity);
+        chunk.putLong(offset + 16, arrivalTime);
+
+        size++;
+        header.putLong(SIZE_OFFSET, size);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private MappedByteBuffer recordChunk(long index) throws IOException {
+        Objects.checkIndex(index, size);
+        return chunkOf(index);
+    }
+
+    public int getId(long index) throws IOException {
+        return recordChunk(index).getInt(offsetOf(index));
+    }
+
+    public int getCustomer(long index) throws IOException {
+        return recordChunk(index).getInt(offsetOf(index) + 4);
+    }
+
+    public int getPrice(long index) throws IOException {
+        return recordChunk(index).getInt(offsetOf(index) + 8);
+    }
+
+    public int getQuantity(long index) throws IOException {
+        return recordChunk(index).getInt(offsetOf(index) + 12);
+    }
+
+    public long getArrivalTime(long index) throws IOException {
+        return recordChunk(index).getLong(offsetOf(index) + 16);
+    }
+
+    // Flushes records appended since the last call, then the header that counts them.
+    public void force() {
+        for (int i = Math.max(forcedChunks - 1, 0); i < chunks.size(); i++) {
+            chunks.get(i).force();
+        }
+        forcedChunks = chunks.size();
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,75 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Order history stored column by column in growable primitive arrays, 16 bytes per order
+// instead of an Order object plus a reference to it. Orders are appended at the end and
+// only ever dropped from the front.
+public class OrderLog {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] customers = new int[INITIAL_CAPACITY];
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(Order order) {
+        add(order.id, order.customer, order.price, order.quantity);
+    }
+
+    public void add(int id, int customer, int price, int quantity) {
+        if (size == ids.length) {
+            var capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            customers = Arrays.copyOf(customers, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+
+        ids[size] = id;
+        customers[size] = customer;
+        prices[size] = price;
+        quantities[size] = quantity;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Order get(int index) {
+        Objects.checkIndex(index, size);
+        return new Order(ids[index], customers[index], prices[index], quantities[index]);
+    }
+
+    public int getId(int index) {
+        return ids[Objects.checkIndex(index, size)];
+    }
+
+    public int getCustomer(int index) {
+        return customers[Objects.checkIndex(index, size)];
+    }
+
+    public int getPrice(int index) {
+        return prices[Objects.checkIndex(index, size)];
+    }
+
+    public int getQuantity(int index) {
+        return quantities[Objects.checkIndex(index, size)];
+    }
+
+    void removeFirst(int count) {
+        Objects.checkFromToIndex(0, count, size);
+        size -= count;
+        System.arraycopy(ids, count, ids, 0, size);
+        System.arraycopy(customers, count, customers, 0, size);
+        System.arraycopy(prices, count, prices, 0, size);
+        System.arraycopy(quantities, count, quantities, 0, size);
+    }
+}
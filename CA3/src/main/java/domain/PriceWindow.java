@@ -0,0 +1,135 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Retained orders at one price level, kept as runs of equal quantities so the quantity
+// pattern can be evaluated in constant time while orders enter at the back and leave at
+// the front.
+//
+// The history scan seeds its comparison with the oldest retained order, takes the step
+// from the first order whose quantity differs from its predecessor and then requires every
+// later order to sit exactly one step above that one. A window therefore has a pattern only
+// when, with the seed in front, it is one or more orders of quantity a, then a single order
+// of quantity b, then optionally orders of quantity b + (b - a).
+class PriceWindow {
+    // once this many runs exist nothing can restore a pattern unless orders leave the front
+    private static final int MAX_RUNS_WITHOUT_EVICTION = 4;
+
+    // sequence numbers of the orders in the window; null when orders are never evicted
+    private final LongRing sequences;
+    private final IntRing runQuantities = new IntRing();
+    private final IntRing runLengths = new IntRing();
+    private long firstSequence;
+    private int size;
+
+    PriceWindow(boolean evicting) {
+        sequences = evicting ? new LongRing() : null;
+    }
+
+    void add(long sequence, int quantity, int limit) {
+        if (size == 0) {
+            firstSequence = sequence;
+        }
+        size++;
+
+        if (runQuantities.size() > 0 && runQuantities.last() == quantity) {
+            runLengths.set(runLengths.size() - 1, runLengths.last() + 1);
+        } else if (sequences != null || runQuantities.size() < MAX_RUNS_WITHOUT_EVICTION) {
+            runQuantities.addLast(quantity);
+            runLengths.addLast(1);
+        }
+
+        if (sequences != null) {
+            sequences.addLast(sequence);
+            if (limit > 0 && size > limit) {
+                removeFirst();
+            }
+        }
+    }
+
+    // Drops the order with the given sequence number if it is the oldest one in the window.
+    boolean evictIfFirst(long sequence) {
+        if (size == 0 || sequences.first() != sequence) {
+            return false;
+        }
+
+        removeFirst();
+        return true;
+    }
+
+    private void removeFirst() {
+        size--;
+        sequences.removeFirst();
+        if (size > 0) {
+            firstSequence = sequences.first();
+        }
+
+        if (runLengths.first() == 1) {
+            runQuantities.removeFirst();
+            runLengths.removeFirst();
+        } else {
+            runLengths.set(0, runLengths.first() - 1);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int getDiff(long seedSequence, int seedQuantity) {
+        var runs = runQuantities.size();
+        var seedRun = (size == 0 || firstSequence != seedSequence)
+                && (runs == 0 || runQuantities.first() != seedQuantity);
+        var shift = seedRun ? 1 : 0;
+
+        if (runs + shift < 2 || runs + shift > 3) {
+            return 0;
+        }
+        if (runLengths.get(1 - shift) != 1) {
+            return 0;
+        }
+
+        var first = seedRun ? seedQuantity : runQuantities.first();
+        var second = runQuantities.get(1 - shift);
+        var diff = second - first;
+        if (runs + shift == 3 && runQuantities.get(2 - shift) - second != diff) {
+            return 0;
+        }
+
+        return diff;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeLong(firstSequence);
+        out.writeInt(runQuantities.size());
+        for (int i = 0; i < runQuantities.size(); i++) {
+            out.writeInt(runQuantities.get(i));
+            out.writeInt(runLengths.get(i));
+        }
+        if (sequences != null) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(sequences.get(i));
+            }
+        }
+    }
+
+    static PriceWindow readFrom(DataInput in, boolean evicting) throws IOException {
+        var window = new PriceWindow(evicting);
+        window.size = in.readInt();
+        window.firstSequence = in.readLong();
+        var runs = in.readInt();
+        for (int i = 0; i < runs; i++) {
+            window.runQuantities.addLast(in.readInt());
+            window.runLengths.addLast(in.readInt());
+        }
+        if (evicting) {
+            for (int i = 0; i < window.size; i++) {
+                window.sequences.addLast(in.readLong());
+            }
+        }
+        return window;
+    }
+}
@@ -0,0 +1,32 @@
+package domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// Bounds on the order history an Engine keeps. Orders leaving the history are forgotten
+// entirely: their ids may be accepted again and they no longer count towards any average or
+// pattern. The customer and price windows additionally limit the averages and patterns to the
+// most recent retained orders of a customer or at a price. Zero limits and a null maxAge
+// keep everything.
+@Getter
+@AllArgsConstructor
+public class RetentionPolicy {
+    public static final RetentionPolicy UNBOUNDED = new RetentionPolicy(0, null, 0, 0);
+
+    private final int maxOrders;
+    private final Duration maxAge;
+    private final int customerWindow;
+    private final int priceWindow;
+    private final Clock clock;
+
+    public RetentionPolicy(int maxOrders, Duration maxAge, int customerWindow, int priceWindow) {
+        this(maxOrders, maxAge, customerWindow, priceWindow, Clock.systemUTC());
+    }
+
+    boolean evictsHistory() {
+        return maxOrders > 0 || maxAge != null;
+    }
+}
@@ -0,0 +1,218 @@
+package domain;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Thread-safe front-end scoring orders like Engine.addOrderAndGetFraudulentQuantity, in the
+// order submissions reach the coordinator thread. The coordinator rejects duplicate ids and
+// evaluates the cross-customer price pattern in an Engine keeping every order's price, then
+// hands each order through a single-producer single-consumer queue to the shard its customer
+// hashes to: a thread whose own Engine applies the average rule to the customers it owns.
+// Submitters only queue their orders, so they never wait on each other or on the scoring.
+// Retention is limited to customer and price windows, as evicting whole orders would need
+// every shard's history to agree on which ones are gone.
+public class ShardedEngine implements AutoCloseable {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+    private static final int SPINS_BEFORE_PARK = 1000;
+    private static final long PARK_NANOS = 50_000;
+
+    private record Submission(Order order, CompletableFuture<Integer> result) {
+    }
+
+    private record Task(Order order, int patternQuantity, CompletableFuture<Integer> result) {
+    }
+
+    private final ConcurrentLinkedQueue<Submission> submissions = new ConcurrentLinkedQueue<>();
+    private final Engine prices;
+    private final Shard[] shards;
+    private final Thread coordinator;
+    private volatile boolean coordinatorParked;
+
+    // submitters past the closed check whose order may not be queued yet
+    private final AtomicInteger submitting = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile boolean running = true;
+
+    public ShardedEngine(int shardCount) {
+        this(shardCount, RetentionPolicy.UNBOUNDED);
+    }
+
+    public ShardedEngine(int shardCount, RetentionPolicy retention) {
+        this(shardCount, retention, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    ShardedEngine(int shardCount, RetentionPolicy retention, int queueCapacity) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        if (retention.evictsHistory()) {
+            throw new IllegalArgumentException("ShardedEngine supports customer and price windows only");
+        }
+
+        prices = Engine.forPrices(retention);
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(Engine.forCustomers(retention), queueCapacity);
+        }
+        for (int i = 0; i < shardCount; i++) {
+            var thread = new Thread(shards[i]::run, "fraud-engine-shard-" + i);
+            thread.setDaemon(true);
+            shards[i].thread = thread;
+            thread.start();
+        }
+
+        coordinator = new Thread(this::coordinate, "fraud-engine-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    public CompletableFuture<Integer> addOrderAndGetFraudulentQuantity(Order order) {
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("engine is closed");
+            }
+
+            // copied, as callers may reuse their orders and this one is scored after we return
+            var result = new CompletableFuture<Integer>();
+            submissions.offer(new Submission(new Order(order.id, order.customer, order.price, order.quantity), result));
+            if (coordinatorParked) {
+                LockSupport.unpark(coordinator);
+            }
+            return result;
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    private Shard shardOf(int customer) {
+        var hash = customer ^ (customer >>> 16);
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+
+    // The only producer of every shard queue.
+    private void coordinate() {
+        var idle = 0;
+        while (true) {
+            var submission = submissions.poll();
+            if (submission == null) {
+                // close stops the coordinator only once no submitter can still be queueing
+                if (!running && submissions.isEmpty()) {
+                    break;
+                }
+                if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    coordinatorParked = true;
+                    if (submissions.isEmpty() && running) {
+                        LockSupport.parkNanos(PARK_NANOS);
+                    }
+                    coordinatorParked = false;
+                }
+                continue;
+            }
+
+            idle = 0;
+            var order = submission.order;
+            try {
+                if (prices.hasOrder(order.id)) {
+                    submission.result.complete(0);
+                    continue;
+                }
+                var patternQuantity = prices.addOrderAndGetPatternQuantity(order);
+                shardOf(order.customer).submit(new Task(order, patternQuantity, submission.result));
+            } catch (RuntimeException e) {
+                submission.result.completeExceptionally(e);
+            }
+        }
+
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.thread);
+        }
+    }
+
+    // Stops accepting orders and waits until every submitted order has been scored.
+    @Override
+    public void close() {
+        closed = true;
+        while (submitting.get() != 0) {
+            Thread.onSpinWait();
+        }
+        running = false;
+        LockSupport.unpark(coordinator);
+
+        var interrupted = join(coordinator);
+        for (Shard shard : shards) {
+            interrupted |= join(shard.thread);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Waits for the thread to end even if interrupted, reporting whether it was.
+    private static boolean join(Thread thread) {
+        var interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    private static class Shard {
+        private final Engine customers;
+        private final SpscQueue<Task> queue;
+        private volatile boolean running = true;
+        private volatile boolean parked;
+        private Thread thread;
+
+        Shard(Engine customers, int queueCapacity) {
+            this.customers = customers;
+            queue = new SpscQueue<>(queueCapacity);
+        }
+
+        // Called by the coordinator thread only.
+        void submit(Task task) {
+            while (!queue.offer(task)) {
+                Thread.onSpinWait();
+            }
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        void run() {
+            var idle = 0;
+            while (running || !queue.isEmpty()) {
+                var task = queue.poll();
+                if (task == null) {
+                    if (++idle < SPINS_BEFORE_PARK) {
+                        Thread.onSpinWait();
+                    } else {
+                        parked = true;
+                        if (queue.isEmpty() && running) {
+                            LockSupport.parkNanos(PARK_NANOS);
+                        }
+                        parked = false;
+                    }
+                    continue;
+                }
+
+                idle = 0;
+                try {
+                    var quantity = customers.addOrderAndGetCustomerQuantity(task.order);
+                    task.result.complete(quantity != 0 ? quantity : task.patternQuantity);
+                } catch (RuntimeException e) {
+                    task.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
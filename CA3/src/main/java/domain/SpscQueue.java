@@ -0,0 +1,50 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded lock-free ring buffer for exactly one producer and one consumer at a time.
+// Producers may change between calls as long as a lock or other happens-before edge
+// separates them.
+class SpscQueue<T> {
+    private final Object[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    SpscQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        buffer = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    boolean offer(T item) {
+        var t = tail.get();
+        if (t - head.get() == buffer.length) {
+            return false;
+        }
+
+        buffer[(int) t & mask] = item;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    T poll() {
+        var h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+
+        var index = (int) h & mask;
+        var item = (T) buffer[index];
+        buffer[index] = null;
+        head.lazySet(h + 1);
+        return item;
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
@@ -0,0 +1,141 @@
+package domain;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DurableEngineTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Order[] createOrders(int count, long seed) {
+        Random random = new Random(seed);
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = new Order(random.nextInt(count), random.nextInt(50), random.nextInt(10), random.nextInt(20));
+        }
+        return orders;
+    }
+
+    // Feeds the first orders to a durable engine that is then abandoned without closing, as if
+    // the process had crashed, and checks that the reopened engine scores the rest like an engine
+    // that never stopped.
+    private void assertRecoversAfterCrash(RetentionPolicy retention, int snapshotInterval) throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Order[] orders = createOrders(3000, 11);
+        Engine reference = new Engine(retention);
+
+        DurableEngine crashed = DurableEngine.open(directory, retention, snapshotInterval);
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(reference.addOrderAndGetFraudulentQuantity(orders[i]), crashed.addOrderAndGetFraudulentQuantity(orders[i]));
+        }
+
+        try (DurableEngine recovered = DurableEngine.open(directory, retention, snapshotInterval)) {
+            for (int i = 2000; i < orders.length; i++) {
+                assertEquals(reference.addOrderAndGetFraudulentQuantity(orders[i]), recovered.addOrderAndGetFraudulentQuantity(orders[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testRecoversByReplayingWholeJournal() throws IOException {
+        assertRecoversAfterCrash(RetentionPolicy.UNBOUNDED, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testRecoversFromSnapshotAndJournalTail() throws IOException {
+        assertRecoversAfterCrash(RetentionPolicy.UNBOUNDED, 150);
+    }
+
+    @Test
+    public void testRecoversWithRetentionWindows() throws IOException {
+        assertRecoversAfterCrash(new RetentionPolicy(500, null, 5, 3), 150);
+    }
+
+    @Test
+    public void testRecoversAfterCleanClose() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Order[] orders = createOrders(2000, 12);
+        Engine reference = new Engine();
+
+        try (DurableEngine engine = DurableEngine.open(directory)) {
+            for (int i = 0; i < 1000; i++) {
+                reference.addOrderAndGetFraudulentQuantity(orders[i]);
+                engine.addOrderAndGetFraudulentQuantity(orders[i]);
+            }
+        }
+
+        Order[] rest = Arrays.copyOfRange(orders, 1000, orders.length);
+        int[] expected = new int[rest.length];
+        for (int i = 0; i < rest.length; i++) {
+            expected[i] = reference.addOrderAndGetFraudulentQuantity(rest[i]);
+        }
+        try (DurableEngine engine = DurableEngine.open(directory)) {
+            assertArrayEquals(expected, engine.addOrdersAndGetFraudulentQuantities(rest));
+        }
+    }
+
+    @Test
+    public void testIgnoresSnapshotOfAnotherPolicy() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        RetentionPolicy retention = new RetentionPolicy(100, null, 0, 0);
+        Engine reference = new Engine(retention);
+
+        try (DurableEngine engine = DurableEngine.open(directory)) {
+            Order[] orders = createOrders(1000, 13);
+            for (int i = 0; i < orders.length; i++) {
+                Order order = orders[i];
+                order.setId(i);
+                engine.addOrderAndGetFraudulentQuantity(order);
+                reference.addOrderAndGetFraudulentQuantity(order);
+            }
+        }
+
+        try (DurableEngine engine = DurableEngine.open(directory, retention, 100)) {
+            for (int c = 0; c < 50; c++) {
+                Order order = new Order(10_000 + c, c, c % 10, 7);
+                assertEquals(reference.addOrderAndGetFraudulentQuantity(order), engine.addOrderAndGetFraudulentQuantity(order));
+            }
+        }
+    }
+
+    @Test
+    public void testIgnoresCorruptSnapshot() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        try (DurableEngine engine = DurableEngine.open(directory)) {
+            engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 4));
+        }
+        Files.write(directory.resolve(DurableEngine.SNAPSHOT_FILE), new byte[]{1, 2, 3});
+
+        try (DurableEngine engine = DurableEngine.open(directory)) {
+            assertEquals(0, engine.addOrderAndGetFraudulentQuantity(new Order(1, 2, 200, 9)));
+            assertEquals(2, engine.addOrderAndGetFraudulentQuantity(new Order(2, 1, 300, 6)));
+        }
+    }
+
+    @Test
+    public void testReplayUsesJournaledArrivalTimes() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        EngineTest.MutableClock clock = new EngineTest.MutableClock();
+        RetentionPolicy retention = new RetentionPolicy(0, Duration.ofSeconds(10), 0, 0, clock);
+
+        DurableEngine crashed = DurableEngine.open(directory, retention, Integer.MAX_VALUE);
+        crashed.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 10));
+        clock.millis = 5_000;
+        crashed.addOrderAndGetFraudulentQuantity(new Order(2, 1, 100, 2));
+
+        clock.millis = 12_000;
+        try (DurableEngine recovered = DurableEngine.open(directory, retention, Integer.MAX_VALUE)) {
+            assertEquals(8, recovered.addOrderAndGetFraudulentQuantity(new Order(1, 1, 200, 10)));
+        }
+    }
+}
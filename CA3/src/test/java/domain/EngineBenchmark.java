@@ -0,0 +1,123 @@
+package domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores incoming orders against an engine that already holds {@code historySize} orders.
+ * Customers and price levels are skewed towards a few hot ones and one order in twenty
+ * reuses a recent id. An unbounded engine keeps growing by the orders it scores; a bounded
+ * one retains exactly {@code historySize}. Run {@link #main} from the test classpath after
+ * {@code mvn test-compile}: it reports ops/s, then sampled latency percentiles (p0.99) with
+ * allocation per order as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EngineBenchmark {
+    static final int CUSTOMERS = 100_000;
+    static final int PRICE_LEVELS = 10_000;
+    private static final int DUPLICATE_EVERY = 20;
+    private static final int STREAM_LENGTH = 1 << 20;
+    private static final int BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int historySize;
+
+    @Param({"false", "true"})
+    private boolean bounded;
+
+    private Engine engine;
+    private int[] customers;
+    private int[] prices;
+    private int[] quantities;
+    private int next;
+    private int nextId;
+    private final Order order = new Order();
+    private final Order[] batch = new Order[BATCH];
+
+    static int customer(Random random) {
+        return (int) (CUSTOMERS * Math.pow(random.nextDouble(), 2));
+    }
+
+    static int price(Random random) {
+        return (int) (PRICE_LEVELS * Math.pow(random.nextDouble(), 4));
+    }
+
+    static int quantity(Random random) {
+        return 1 + (int) (-Math.log(1 - random.nextDouble()) * 5);
+    }
+
+    static Order[] createOrders(int count, Random random) {
+        var orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = new Order(i, customer(random), price(random), quantity(random));
+        }
+        return orders;
+    }
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        engine = new Engine(bounded ? new RetentionPolicy(historySize, null, 0, 0) : RetentionPolicy.UNBOUNDED);
+        engine.addOrdersAndGetFraudulentQuantities(createOrders(historySize, random));
+        nextId = historySize;
+
+        customers = new int[STREAM_LENGTH];
+        prices = new int[STREAM_LENGTH];
+        quantities = new int[STREAM_LENGTH];
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            customers[i] = customer(random);
+            prices[i] = price(random);
+            quantities[i] = quantity(random);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = new Order();
+        }
+    }
+
+    // The engine copies what it keeps, so one mutable order is refilled for every call.
+    private Order fill(Order order) {
+        var i = next++ & (STREAM_LENGTH - 1);
+        order.setId(i % DUPLICATE_EVERY == 0 ? nextId - 1 - i % BATCH : nextId++);
+        order.setCustomer(customers[i]);
+        order.setPrice(prices[i]);
+        order.setQuantity(quantities[i]);
+        return order;
+    }
+
+    @Benchmark
+    public int addOrder() {
+        return engine.addOrderAndGetFraudulentQuantity(fill(order));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] addOrdersInBatches() {
+        for (Order order : batch) {
+            fill(order);
+        }
+        return engine.addOrdersAndGetFraudulentQuantities(batch);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EngineBenchmark.class.getSimpleName())
+                .build()).run();
+        new Runner(new OptionsBuilder()
+                .include(EngineBenchmark.class.getSimpleName() + ".addOrder$")
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -3,9 +3,37 @@ package domain;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class EngineTest {
+    static class MutableClock extends Clock {
+        long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
     private Engine engine;
     @Before
     public void setUp() {
@@ -47,6 +75,29 @@ public class EngineTest {
         assertEquals(3, quantityPattern);
     }
 
+    @Test
+    public void testGetQuantityPatternByPriceBrokenPattern() {
+        engine.orderHistory.add(new Order(1, 1, 100, 5));
+        engine.orderHistory.add(new Order(2, 1, 100, 8));
+        engine.orderHistory.add(new Order(3, 1, 100, 12));
+
+        int quantityPattern = engine.getQuantityPatternByPrice(100);
+
+        assertEquals(0, quantityPattern);
+    }
+
+    @Test
+    public void testGetQuantityPatternByPriceAfterAddingOrders() {
+        engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 5));
+        assertEquals(0, engine.getQuantityPatternByPrice(100));
+
+        engine.addOrderAndGetFraudulentQuantity(new Order(2, 2, 100, 8));
+        assertEquals(3, engine.getQuantityPatternByPrice(100));
+
+        engine.addOrderAndGetFraudulentQuantity(new Order(3, 3, 100, 9));
+        assertEquals(0, engine.getQuantityPatternByPrice(100));
+    }
+
     @Test
     public void testGetQuantityPatternByPriceNoOrders() {
         int quantityPattern = engine.getQuantityPatternByPrice(100);
@@ -104,11 +155,123 @@ public class EngineTest {
         assertEquals(0, fraudulentQuantity);
     }
 
+    @Test
+    public void testAddOrderAndGetFraudulentQuantityNewCustomer() {
+        engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 5));
+
+        int fraudulentQuantity = engine.addOrderAndGetFraudulentQuantity(new Order(2, 2, 100, 7));
+
+        assertEquals(7, fraudulentQuantity);
+    }
+
+    @Test
+    public void testAddOrderAndGetFraudulentQuantityUsesRunningAverage() {
+        engine.orderHistory.add(new Order(1, 1, 100, 4));
+        engine.addOrderAndGetFraudulentQuantity(new Order(2, 1, 200, 8));
+
+        int fraudulentQuantity = engine.addOrderAndGetFraudulentQuantity(new Order(3, 1, 300, 9));
+
+        assertEquals(3, fraudulentQuantity);
+        assertEquals(7, engine.getAverageOrderQuantityByCustomer(1));
+    }
+
+    @Test
+    public void testAddOrdersAndGetFraudulentQuantitiesMatchesSequential() {
+        Random random = new Random(42);
+        Engine sequential = new Engine();
+        for (int batch = 0; batch < 20; batch++) {
+            Order[] orders = new Order[500];
+            for (int i = 0; i < orders.length; i++) {
+                orders[i] = new Order(random.nextInt(5000), random.nextInt(50), random.nextInt(10), random.nextInt(20));
+            }
+
+            int[] expected = new int[orders.length];
+            for (int i = 0; i < orders.length; i++) {
+                expected[i] = sequential.addOrderAndGetFraudulentQuantity(orders[i]);
+            }
+
+            assertArrayEquals(expected, engine.addOrdersAndGetFraudulentQuantities(orders));
+        }
+        assertEquals(sequential.orderHistory.size(), engine.orderHistory.size());
+        for (int i = 0; i < engine.orderHistory.size(); i++) {
+            assertEquals(sequential.orderHistory.getId(i), engine.orderHistory.getId(i));
+        }
+    }
+
+    @Test
+    public void testMaxOrdersForgetsOldestOrders() {
+        engine = new Engine(new RetentionPolicy(2, null, 0, 0));
+        engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 10));
+        engine.addOrderAndGetFraudulentQuantity(new Order(2, 1, 200, 2));
+        engine.addOrderAndGetFraudulentQuantity(new Order(3, 1, 300, 4));
+
+        assertEquals(3, engine.getAverageOrderQuantityByCustomer(1));
+        assertEquals(5, engine.addOrderAndGetFraudulentQuantity(new Order(1, 2, 400, 5)));
+    }
+
+    @Test
+    public void testCustomerWindowAveragesRecentOrders() {
+        engine = new Engine(new RetentionPolicy(0, null, 2, 0));
+        engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 30));
+        engine.addOrderAndGetFraudulentQuantity(new Order(2, 1, 200, 2));
+        engine.addOrderAndGetFraudulentQuantity(new Order(3, 1, 300, 4));
+
+        assertEquals(3, engine.getAverageOrderQuantityByCustomer(1));
+        assertEquals(0, engine.addOrderAndGetFraudulentQuantity(new Order(1, 2, 400, 5)));
+    }
+
+    @Test
+    public void testPriceWindowRestoresPatternAfterEviction() {
+        engine = new Engine(new RetentionPolicy(0, null, 0, 2));
+        engine.orderHistory.add(new Order(1, 1, 100, 5));
+        engine.orderHistory.add(new Order(2, 1, 200, 1));
+        engine.orderHistory.add(new Order(3, 1, 200, 9));
+        assertEquals(0, engine.getQuantityPatternByPrice(200));
+
+        engine.orderHistory.add(new Order(4, 1, 200, 13));
+
+        assertEquals(4, engine.getQuantityPatternByPrice(200));
+    }
+
+    @Test
+    public void testMaxAgeForgetsExpiredOrders() {
+        MutableClock clock = new MutableClock();
+        engine = new Engine(new RetentionPolicy(0, Duration.ofSeconds(10), 0, 0, clock));
+        engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 10));
+        clock.millis = 5_000;
+        engine.addOrderAndGetFraudulentQuantity(new Order(2, 1, 100, 2));
+        assertEquals(6, engine.getAverageOrderQuantityByCustomer(1));
+
+        clock.millis = 12_000;
+
+        assertEquals(2, engine.getAverageOrderQuantityByCustomer(1));
+        assertEquals(0, engine.getQuantityPatternByPrice(100));
+        assertEquals(8, engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 10)));
+    }
+
+    @Test
+    public void testRetentionBoundsHistory() {
+        engine = new Engine(new RetentionPolicy(100, null, 0, 0));
+        for (int i = 0; i < 100_000; i++) {
+            engine.addOrderAndGetFraudulentQuantity(new Order(i, i % 1000, i % 50, i % 7));
+        }
+
+        assertTrue(engine.orderHistory.size() <= 2048);
+        assertEquals(0, engine.getAverageOrderQuantityByCustomer(0));
+        assertEquals(4, engine.getAverageOrderQuantityByCustomer(999));
+    }
+
     @Test
     public void testOrderEqualCheckForTwoEqualOrders() {
         assertEquals(new Order(1, 1, 100, 0), new Order(1, 1, 100, 1));
     }
 
+    @Test
+    public void testOrderHashCodeFollowsEquals() {
+        assertEquals(new Order(1, 1, 100, 0).hashCode(), new Order(1, 2, 200, 1).hashCode());
+        assertEquals(1, new HashSet<>(List.of(new Order(1, 1, 100, 0), new Order(1, 2, 200, 1))).size());
+    }
+
     @Test
     public void testOrderEqualCheckForTwoNotEqualOrders() {
         assertNotEquals(new Order(2, 1, 100, 0), new Order(1, 1, 100, 1));
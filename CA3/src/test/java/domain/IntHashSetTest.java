@@ -0,0 +1,89 @@
+package domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class IntHashSetTest {
+    private IntHashSet set;
+
+    @Before
+    public void setUp() {
+        set = new IntHashSet();
+    }
+
+    @Test
+    public void testAddContainsRemove() {
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.contains(5));
+        assertFalse(set.contains(6));
+
+        assertTrue(set.remove(5));
+        assertFalse(set.remove(5));
+        assertFalse(set.contains(5));
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    public void testZeroAndNegativeValues() {
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(Integer.MIN_VALUE));
+
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(Integer.MIN_VALUE));
+        assertEquals(3, set.size());
+
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        assertTrue(set.contains(-1));
+    }
+
+    @Test
+    public void testMatchesHashSetUnderChurn() {
+        Random random = new Random(3);
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(5000) - 2500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (int value = -2500; value < 2500; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    @Test
+    public void testWriteAndReadBack() throws IOException {
+        for (int i = -1000; i < 1000; i++) {
+            set.add(i * 7);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        set.writeTo(new DataOutputStream(bytes));
+
+        IntHashSet copy = new IntHashSet();
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(2000, copy.size());
+        assertTrue(copy.contains(0));
+        assertTrue(copy.contains(-7000));
+        assertFalse(copy.contains(1));
+    }
+}
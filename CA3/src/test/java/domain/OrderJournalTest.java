@@ -0,0 +1,69 @@
+package domain;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class OrderJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReopenedJournalReadsAppendedOrders() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("orders.journal");
+        try (OrderJournal journal = OrderJournal.open(path)) {
+            journal.append(1, 2, 300, 4, 5_000L);
+            journal.append(6, 7, 800, 9, 10_000L);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(path)) {
+            assertEquals(2, journal.size());
+            assertEquals(6, journal.getId(1));
+            assertEquals(7, journal.getCustomer(1));
+            assertEquals(800, journal.getPrice(1));
+            assertEquals(9, journal.getQuantity(1));
+            assertEquals(10_000L, journal.getArrivalTime(1));
+        }
+    }
+
+    @Test
+    public void testAppendsAcrossChunks() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("orders.journal");
+        int orders = (1 << 20) + 10;
+        try (OrderJournal journal = OrderJournal.open(path)) {
+            for (int i = 0; i < orders; i++) {
+                journal.append(i, i % 100, i % 7, i % 13, i);
+            }
+        }
+
+        try (OrderJournal journal = OrderJournal.open(path)) {
+            assertEquals(orders, journal.size());
+            for (long i = orders - 20; i < orders; i++) {
+                assertEquals(i, journal.getId(i));
+                assertEquals(i % 13, journal.getQuantity(i));
+                assertEquals(i, journal.getArrivalTime(i));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testReadBeyondSizeFails() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(folder.getRoot().toPath().resolve("orders.journal"))) {
+            journal.append(1, 1, 100, 5, 0);
+            journal.getId(1);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpeningAnotherFileFails() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("orders.json");
+        Files.writeString(path, "[{\"id\": 1, \"customer\": 2, \"price\": 3, \"quantity\": 4}]".repeat(4));
+        OrderJournal.open(path);
+    }
+}
@@ -0,0 +1,54 @@
+package domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OrderLogTest {
+    private OrderLog log;
+
+    @Before
+    public void setUp() {
+        log = new OrderLog();
+    }
+
+    @Test
+    public void testAddAndGetAcrossGrowth() {
+        for (int i = 0; i < 1000; i++) {
+            log.add(new Order(i, i % 10, i * 2, i * 3));
+        }
+
+        assertEquals(1000, log.size());
+        Order order = log.get(999);
+        assertEquals(999, order.getId());
+        assertEquals(9, order.getCustomer());
+        assertEquals(1998, order.getPrice());
+        assertEquals(2997, order.getQuantity());
+    }
+
+    @Test
+    public void testRemoveFirstShiftsRemainingOrders() {
+        for (int i = 0; i < 100; i++) {
+            log.add(i, i, i, i);
+        }
+
+        log.removeFirst(40);
+
+        assertEquals(60, log.size());
+        assertEquals(40, log.getId(0));
+        assertEquals(99, log.getQuantity(59));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetBeyondSizeFails() {
+        log.add(1, 1, 100, 5);
+        log.getId(1);
+    }
+
+    @Test
+    public void testEmptyLog() {
+        assertTrue(log.isEmpty());
+        assertEquals(0, log.size());
+    }
+}
@@ -0,0 +1,69 @@
+package domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time for {@link DurableEngine#open} to rebuild an engine from a journal of
+ * {@code journalSize} orders, either by replaying all of it or from a snapshot covering all
+ * but the last 1% of it. The journal is left as a crashed process would leave it, so every
+ * measured open starts from the same files. Run {@link #main} from the test classpath after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecoveryBenchmark {
+    @Param({"1000000", "10000000"})
+    private int journalSize;
+
+    @Param({"false", "true"})
+    private boolean snapshot;
+
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("engine-recovery");
+        var snapshotInterval = snapshot ? journalSize - journalSize / 100 : Integer.MAX_VALUE;
+
+        // never closed, since closing would snapshot everything
+        var engine = DurableEngine.open(directory, RetentionPolicy.UNBOUNDED, snapshotInterval);
+        for (Order order : EngineBenchmark.createOrders(journalSize, new Random(42))) {
+            engine.addOrderAndGetFraudulentQuantity(order);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public DurableEngine open() throws IOException {
+        return DurableEngine.open(directory, RetentionPolicy.UNBOUNDED, Integer.MAX_VALUE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecoveryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
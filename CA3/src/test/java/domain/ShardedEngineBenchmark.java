@@ -0,0 +1,129 @@
+package domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders scored per second by a {@link ShardedEngine} against an {@link Engine} behind one
+ * lock, from 1, 2, 4 and 8 submitting threads. Orders follow the skew of
+ * {@link EngineBenchmark}, with ids interleaved across threads so they never collide unless
+ * one in twenty deliberately reuses a recent one. Each thread submits {@link #BATCH} orders
+ * before waiting for their scores, as a client streaming orders would. Run {@link #main} from
+ * the test classpath after {@code mvn test-compile}; scaling only shows on a machine with at
+ * least as many cores as the sharded engine has threads busy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShardedEngineBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+    private static final int DUPLICATE_EVERY = 20;
+    private static final int STREAM_LENGTH = 1 << 16;
+    private static final int BATCH = 256;
+
+    @Param({"2", "4", "8"})
+    private int shards;
+
+    private Engine engine;
+    private ShardedEngine shardedEngine;
+
+    @State(Scope.Thread)
+    public static class Submitter {
+        private int[] customers;
+        private int[] prices;
+        private int[] quantities;
+        private int next;
+        private int nextId;
+        private int threadCount;
+        private final Order order = new Order();
+        @SuppressWarnings("unchecked")
+        private final CompletableFuture<Integer>[] results = new CompletableFuture[BATCH];
+
+        @Setup
+        public void setUp(ThreadParams threads) {
+            var random = new Random(threads.getThreadIndex());
+            customers = new int[STREAM_LENGTH];
+            prices = new int[STREAM_LENGTH];
+            quantities = new int[STREAM_LENGTH];
+            for (int i = 0; i < STREAM_LENGTH; i++) {
+                customers[i] = EngineBenchmark.customer(random);
+                prices[i] = EngineBenchmark.price(random);
+                quantities[i] = EngineBenchmark.quantity(random);
+            }
+            nextId = threads.getThreadIndex();
+            threadCount = threads.getThreadCount();
+        }
+
+        Order fill() {
+            var i = next++ & (STREAM_LENGTH - 1);
+            if (i % DUPLICATE_EVERY == 0 && nextId >= threadCount) {
+                order.setId(nextId - threadCount);
+            } else {
+                order.setId(nextId);
+                nextId += threadCount;
+            }
+            order.setCustomer(customers[i]);
+            order.setPrice(prices[i]);
+            order.setQuantity(quantities[i]);
+            return order;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        engine = new Engine();
+        shardedEngine = new ShardedEngine(shards);
+    }
+
+    @TearDown
+    public void tearDown() {
+        shardedEngine.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int lockedEngine(Submitter submitter) {
+        var total = 0;
+        for (int i = 0; i < BATCH; i++) {
+            var order = submitter.fill();
+            synchronized (engine) {
+                total += engine.addOrderAndGetFraudulentQuantity(order);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int shardedEngine(Submitter submitter) {
+        var results = submitter.results;
+        for (int i = 0; i < BATCH; i++) {
+            results[i] = shardedEngine.addOrderAndGetFraudulentQuantity(submitter.fill());
+        }
+
+        var total = 0;
+        for (CompletableFuture<Integer> result : results) {
+            total += result.join();
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .include(ShardedEngineBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package domain;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ShardedEngineTest {
+    private static final int THREADS = 8;
+
+    private ShardedEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new ShardedEngine(4);
+    }
+
+    @After
+    public void tearDown() {
+        engine.close();
+    }
+
+    private static void assertMatchesEngine(Engine sequential, ShardedEngine sharded, long seed) {
+        Random random = new Random(seed);
+        List<Integer> expected = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        Order order = new Order();
+        for (int i = 0; i < 5000; i++) {
+            order.setId(random.nextInt(4000));
+            order.setCustomer(random.nextInt(100));
+            order.setPrice(random.nextInt(10));
+            order.setQuantity(random.nextInt(20));
+            expected.add(sequential.addOrderAndGetFraudulentQuantity(order));
+            results.add(sharded.addOrderAndGetFraudulentQuantity(order));
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), results.get(i).join());
+        }
+    }
+
+    @Test
+    public void testMatchesEngineForSingleSubmitter() {
+        assertMatchesEngine(new Engine(), engine, 7);
+    }
+
+    @Test
+    public void testMatchesEngineWithCustomerAndPriceWindows() {
+        RetentionPolicy retention = new RetentionPolicy(0, null, 5, 8);
+        try (ShardedEngine windowed = new ShardedEngine(4, retention)) {
+            assertMatchesEngine(new Engine(retention), windowed, 11);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsRetentionEvictingOrders() {
+        new ShardedEngine(4, new RetentionPolicy(100, null, 0, 0)).close();
+    }
+
+    @Test
+    public void testDuplicateOrderScoresZero() {
+        assertEquals(8, (int) engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 8)).join());
+        assertEquals(0, (int) engine.addOrderAndGetFraudulentQuantity(new Order(1, 2, 100, 20)).join());
+    }
+
+    @Test
+    public void testConcurrentSubmittersWithDisjointCustomersAndPrices() throws Exception {
+        Order first = new Order(-1, -1, -1, 3);
+        engine.addOrderAndGetFraudulentQuantity(first).join();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> submitters = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < THREADS; thread++) {
+                int base = thread * 1000;
+                submitters.add(executor.submit(() -> {
+                    Random random = new Random(base);
+                    Engine sequential = new Engine();
+                    sequential.addOrderAndGetFraudulentQuantity(first);
+                    List<Integer> expected = new ArrayList<>();
+                    List<CompletableFuture<Integer>> results = new ArrayList<>();
+                    for (int i = 0; i < 1000; i++) {
+                        Order order = new Order(base + i, base + random.nextInt(20), base + random.nextInt(5), random.nextInt(20));
+                        expected.add(sequential.addOrderAndGetFraudulentQuantity(order));
+                        results.add(engine.addOrderAndGetFraudulentQuantity(order));
+                    }
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertEquals(expected.get(i), results.get(i).join());
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> submitter : submitters) {
+                submitter.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRacingDuplicatesAreAcceptedOnce() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> submitters = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < THREADS; thread++) {
+                submitters.add(executor.submit(() -> {
+                    // every customer orders once, so only the accepted copy of an id scores 5
+                    List<CompletableFuture<Integer>> results = new ArrayList<>();
+                    for (int id = 0; id < 2000; id++) {
+                        results.add(engine.addOrderAndGetFraudulentQuantity(new Order(id, id, id % 3, 5)));
+                    }
+                    for (CompletableFuture<Integer> result : results) {
+                        if (result.join() == 5) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> submitter : submitters) {
+                submitter.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2000, accepted.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterCloseFails() {
+        engine.close();
+        engine.addOrderAndGetFraudulentQuantity(new Order(1, 1, 100, 8));
+    }
+}